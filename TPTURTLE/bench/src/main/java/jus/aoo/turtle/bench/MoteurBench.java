@@ -0,0 +1,96 @@
+package jus.aoo.turtle.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import jus.aoo.geometrie.Vecteur;
+import jus.aoo.turtle.Decoupage;
+import jus.aoo.turtle.MoteurTortue;
+import jus.aoo.turtle._Traceur;
+
+/**
+ * Chemins critiques du moteur sans affichage : déplacements plume levée et baissée,
+ * découpage au bord de la feuille et test de visibilité de la destination.
+ * La tortue est placée à 5 pas du bord droit, tournée vers lui.
+ * Le découpage par lot porte sur LOT déplacements aléatoires partant de la feuille.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MoteurBench {
+	@Param({"true", "false"})
+	public boolean plumeLevee;
+	private MoteurTortue moteur;
+	private Vecteur cap;
+	private static final int LOT = 1024;
+	private double[] lx, ly, ldx, ldy, lt, ls;
+
+	@Setup
+	public void preparer(final Blackhole bh) {
+		moteur = new MoteurTortue(new _Traceur() {
+			public void trace(double x1, double y1, double x2, double y2) {
+				bh.consume(x1); bh.consume(y1); bh.consume(x2); bh.consume(y2);
+			}
+		}, 650, 400);
+		moteur.allerA(320, 0);
+		if(!plumeLevee) moteur.baisser();
+		cap = moteur.cap();
+		Random r = new Random(1);
+		lx = new double[LOT]; ly = new double[LOT]; ldx = new double[LOT]; ldy = new double[LOT];
+		lt = new double[LOT]; ls = new double[LOT];
+		for(int i=0; i<LOT; i++) {
+			lx[i] = r.nextDouble()*650-325; ly[i] = r.nextDouble()*400-200;
+			ldx[i] = r.nextGaussian()*300; ldy[i] = r.nextGaussian()*300;
+		}
+	}
+
+	/** un aller-retour au bord : l'aller est raccourci par le découpage */
+	@Benchmark
+	public void avancerReculerAuBord() {
+		moteur.avancer(20);
+		moteur.reculer(5);
+	}
+
+	@Benchmark
+	public double distanceReelleAuBord() {
+		return moteur.distanceReelle(100, 1, 0);
+	}
+
+	@Benchmark
+	public Vecteur calculVecteurReelAuBord() {
+		return moteur.calculVecteurReel(100, cap);
+	}
+
+	@Benchmark
+	public double[] sortiesLot() {
+		Decoupage d = moteur.decoupage();
+		d.sorties(lx, ly, ldx, ldy, lt, LOT);
+		return lt;
+	}
+
+	@Benchmark
+	public int decouperLot() {
+		return moteur.decoupage().decouper(lx, ly, ldx, ldy, lt, ls, LOT);
+	}
+
+	@Benchmark
+	public boolean destinationVisible() {
+		return moteur.destinationVisible(100, 1, 0);
+	}
+}
@@ -0,0 +1,81 @@
+package jus.aoo.turtle.bench;
+
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import jus.aoo.geometrie.Point;
+import jus.aoo.geometrie.Segment;
+import jus.aoo.turtle.Impact;
+import jus.aoo.turtle.Obstacle;
+import jus.aoo.turtle.RegistreObstacles;
+
+/**
+ * Obstacles : appartenance d'un point, parcours des côtés et recherche du premier
+ * obstacle rencontré par un déplacement dans un registre de nb obstacles aléatoires.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ObstacleBench {
+	@Param({"100", "10000"})
+	public int nb;
+	private Obstacle obstacle;
+	private Point dedans, dehors;
+	private RegistreObstacles registre;
+	private Impact impact;
+	private double[] directions;
+	private int k;
+
+	@Setup
+	public void preparer() {
+		obstacle = new Obstacle(new Point(10, 10), new Point(60, 40));
+		dedans = new Point(30, 20);
+		dehors = new Point(100, 100);
+		Random r = new Random(1);
+		registre = new RegistreObstacles();
+		for(int i=0; i<nb; i++) {
+			int x = r.nextInt(2000)-1000, y = r.nextInt(2000)-1000;
+			registre.ajouter(new Obstacle(new Point(x, y), new Point(x+1+r.nextInt(20), y+1+r.nextInt(20))));
+		}
+		impact = new Impact();
+		directions = new double[2*1024];
+		for(int i=0; i<1024; i++) {
+			directions[2*i] = Math.cos(2*Math.PI*i/1024);
+			directions[2*i+1] = Math.sin(2*Math.PI*i/1024);
+		}
+	}
+
+	@Benchmark
+	public void contains(Blackhole bh) {
+		bh.consume(obstacle.contains(dedans));
+		bh.consume(obstacle.contains(dehors));
+	}
+
+	@Benchmark
+	public void segments(Blackhole bh) {
+		for(Iterator<Segment> i = obstacle.segments(); i.hasNext(); ) bh.consume(i.next());
+	}
+
+	@Benchmark
+	public boolean impact() {
+		k = (k+1)&1023;
+		return registre.impact(0, 0, directions[2*k], directions[2*k+1], 300, impact);
+	}
+}
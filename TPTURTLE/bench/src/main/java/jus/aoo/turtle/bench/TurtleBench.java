@@ -0,0 +1,80 @@
+package jus.aoo.turtle.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jus.aoo.geometrie.Vecteur;
+import jus.aoo.turtle.EspaceTortue;
+import jus.aoo.turtle.Turtle;
+
+/**
+ * Déplacements de la tortue affichée, telle que TurtleTrip l'utilise (mode différé),
+ * sur une feuille de 650x400 sans fenêtre.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class TurtleBench {
+	@Param({"levee", "baissee"})
+	public String plume;
+	private EspaceTortue feuille;
+	private Turtle turtle;
+	private Vecteur cap;
+
+	@Setup(Level.Trial)
+	public void preparer() {
+		feuille = new EspaceTortue(false);
+		feuille.setSize(650, 400);
+		turtle = new Turtle(feuille);
+		turtle.setDiffere(true);
+		if(plume.equals("baissee")) turtle.baisser();
+		cap = turtle.cap();
+	}
+
+	@TearDown(Level.Iteration)
+	public void vider() {
+		turtle.flush();
+		feuille.clear();
+	}
+
+	@TearDown(Level.Trial)
+	public void arreter() {turtle.setDiffere(false);}
+
+	/** un aller-retour : avancer puis reculer de 10 pas */
+	@Benchmark
+	public void avancerReculer() {
+		turtle.avancer(10);
+		turtle.reculer(10);
+	}
+
+	@Benchmark
+	public void tourner() {
+		turtle.gauche(10);
+	}
+
+	@Benchmark
+	public Vecteur calculVecteurReel() {
+		return turtle.calculVecteurReel(1000, cap);
+	}
+
+	@Benchmark
+	public boolean destinationVisible() {
+		return turtle.destinationVisible(100, cap);
+	}
+}
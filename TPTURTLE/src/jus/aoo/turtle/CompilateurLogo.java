@@ -0,0 +1,228 @@
+package jus.aoo.turtle;
+
+import static jus.aoo.turtle.ProgrammeLogo.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compile un texte Logo en un {@link ProgrammeLogo}.
+ * Le langage reconnu comprend :
+ * <UL>
+ *   <LI>les primitives avancer (av), reculer (re), droite (dr), gauche (ga), lever (lc),
+ *   baisser (bc) et allerA dx dy ;</LI>
+ *   <LI>repeter n [ ... ], si condition [ ... ] et si condition [ ... ] [ ... ] ;</LI>
+ *   <LI>les procédures : pour nom :p1 :p2 ... fin, appelées par nom arg1 arg2 ...,
+ *   éventuellement récursivement, stop terminant la procédure courante ;</LI>
+ *   <LI>les expressions numériques avec + - * /, les comparaisons &lt; &gt; = et les parenthèses.</LI>
+ * </UL>
+ * Un point-virgule introduit un commentaire jusqu'à la fin de la ligne.
+ * @version 1.0
+ */
+public class CompilateurLogo {
+	protected List<String> mots = new ArrayList<String>(); // les mots du texte source
+	protected int pos;                     // le mot courant
+	protected Map<String,Integer> procedures = new HashMap<String,Integer>(); // le numéro de chaque procédure
+	protected List<Integer> arites = new ArrayList<Integer>();   // le nombre de paramètres de chaque procédure
+	protected List<Integer> definitions = new ArrayList<Integer>(); // la position du nom de chaque procédure
+	protected int[] code = new int[256];   // le code produit
+	protected int taille;                  // la taille du code produit
+	protected double[] constantes = new double[16];
+	protected int nbConstantes;
+	protected Map<String,Integer> parametres; // les paramètres de la procédure en cours de compilation
+	protected int nbLocaux;                // le nombre de variables locales de la portée en cours
+	protected boolean dansProcedure;       // true si une procédure est en cours de compilation
+	/**
+	 * Compile un texte Logo
+	 * @param source le texte
+	 * @return le programme compilé
+	 * @throws ErreurLogo si le texte est incorrect
+	 */
+	public static ProgrammeLogo compiler(String source) {return new CompilateurLogo(source).programme();}
+	/**
+	 * Découpe le texte source en mots
+	 * @param source le texte
+	 */
+	protected CompilateurLogo(String source) {
+		int i=0, n=source.length();
+		while(i<n) {
+			char c = source.charAt(i);
+			if(Character.isWhitespace(c)) {i++;
+			}else if(c==';') {
+				while(i<n && source.charAt(i)!='\n') i++;
+			}else if("[]()+-*/<>=".indexOf(c)>=0) {
+				mots.add(String.valueOf(c)); i++;
+			}else if(Character.isDigit(c) || c=='.') {
+				int j=i;
+				while(j<n && (Character.isDigit(source.charAt(j)) || source.charAt(j)=='.')) j++;
+				mots.add(source.substring(i,j)); i=j;
+			}else if(c==':' || Character.isLetter(c) || c=='_') {
+				int j=i+1;
+				while(j<n && (Character.isLetterOrDigit(source.charAt(j)) || source.charAt(j)=='_')) j++;
+				mots.add(source.substring(i,j).toLowerCase()); i=j;
+			}else throw new ErreurLogo("caractère inattendu : "+c);
+		}
+	}
+	/**
+	 * Compile le programme principal puis chacune des procédures
+	 * @return le programme compilé
+	 */
+	protected ProgrammeLogo programme() {
+		// recensement des procédures, pour connaître leur arité avant de compiler les appels
+		for(pos=0; pos<mots.size(); pos++) {
+			if(!mots.get(pos).equals("pour")) continue;
+			int debut = ++pos;
+			String nom = mot();
+			if(nom.startsWith(":") || !Character.isLetter(nom.charAt(0))) throw new ErreurLogo("nom de procédure incorrect : "+nom);
+			if(procedures.containsKey(nom)) throw new ErreurLogo("procédure définie deux fois : "+nom);
+			int arite = 0;
+			while(pos<mots.size() && mots.get(pos).startsWith(":")) {arite++; pos++;}
+			procedures.put(nom, arites.size());
+			arites.add(arite);
+			definitions.add(debut);
+			while(pos<mots.size() && !mots.get(pos).equals("fin")) {
+				if(mots.get(pos).equals("pour")) throw new ErreurLogo("pour imbriqué dans "+nom);
+				pos++;
+			}
+			if(pos==mots.size()) throw new ErreurLogo("fin manquant pour "+nom);
+		}
+		// programme principal, les définitions étant sautées
+		parametres = new HashMap<String,Integer>();
+		pos = 0;
+		while(pos<mots.size()) {
+			if(mots.get(pos).equals("pour")) {
+				while(!mots.get(pos).equals("fin")) pos++;
+				pos++;
+			}else instruction();
+		}
+		emettre(FIN);
+		int nbLocauxPrincipal = nbLocaux;
+		// procédures
+		int nb = arites.size();
+		int[] entrees = new int[nb], nbParametres = new int[nb], locaux = new int[nb];
+		dansProcedure = true;
+		for(int p=0; p<nb; p++) {
+			pos = definitions.get(p)+1;
+			parametres = new HashMap<String,Integer>();
+			nbLocaux = 0;
+			while(mots.get(pos).startsWith(":")) parametres.put(mots.get(pos++), nbLocaux++);
+			entrees[p] = taille;
+			while(!mots.get(pos).equals("fin")) instruction();
+			emettre(RETOUR);
+			nbParametres[p] = arites.get(p);
+			locaux[p] = nbLocaux;
+		}
+		return new ProgrammeLogo(Arrays.copyOf(code,taille),Arrays.copyOf(constantes,nbConstantes),entrees,nbParametres,locaux,nbLocauxPrincipal);
+	}
+	/** Compile une instruction */
+	protected void instruction() {
+		String m = mot();
+		if(m.equals("avancer") || m.equals("av")) {expression(); emettre(AVANCER);
+		}else if(m.equals("reculer") || m.equals("re")) {expression(); emettre(RECULER);
+		}else if(m.equals("droite") || m.equals("dr")) {expression(); emettre(DROITE);
+		}else if(m.equals("gauche") || m.equals("ga")) {expression(); emettre(GAUCHE);
+		}else if(m.equals("lever") || m.equals("lc")) {emettre(LEVER);
+		}else if(m.equals("baisser") || m.equals("bc")) {emettre(BAISSER);
+		}else if(m.equals("allera")) {expression(); expression(); emettre(ALLER_A);
+		}else if(m.equals("repeter") || m.equals("repete")) {
+			expression();
+			int compteur = nbLocaux++;
+			emettre(RANGER); emettre(compteur);
+			int boucle = taille;
+			emettre(BOUCLE); emettre(compteur); emettre(0);
+			bloc();
+			emettre(SAUT); emettre(boucle);
+			code[boucle+2] = taille;
+		}else if(m.equals("si")) {
+			expression();
+			emettre(SAUT_FAUX); emettre(0);
+			int saut = taille-1;
+			bloc();
+			if(pos<mots.size() && mots.get(pos).equals("[")) {
+				emettre(SAUT); emettre(0);
+				code[saut] = taille;
+				saut = taille-1;
+				bloc();
+			}
+			code[saut] = taille;
+		}else if(m.equals("stop")) {emettre(dansProcedure ? RETOUR : FIN);
+		}else if(procedures.containsKey(m)) {
+			int p = procedures.get(m);
+			for(int i=0; i<arites.get(p); i++) expression();
+			emettre(APPEL); emettre(p);
+		}else throw new ErreurLogo("instruction inconnue : "+m);
+	}
+	/** Compile un bloc d'instructions entre crochets */
+	protected void bloc() {
+		attendre("[");
+		while(!suivant("]")) instruction();
+	}
+	/** Compile une expression : une somme éventuellement comparée à une autre */
+	protected void expression() {
+		somme();
+		if(suivant("<")) {somme(); emettre(INF);
+		}else if(suivant(">")) {somme(); emettre(SUP);
+		}else if(suivant("=")) {somme(); emettre(EGAL);}
+	}
+	/** Compile une somme de termes */
+	protected void somme() {
+		terme();
+		while(true) {
+			if(suivant("+")) {terme(); emettre(ADD);
+			}else if(suivant("-")) {terme(); emettre(SUB);
+			}else return;
+		}
+	}
+	/** Compile un produit de facteurs */
+	protected void terme() {
+		facteur();
+		while(true) {
+			if(suivant("*")) {facteur(); emettre(MUL);
+			}else if(suivant("/")) {facteur(); emettre(DIV);
+			}else return;
+		}
+	}
+	/** Compile un nombre, une variable, une expression parenthésée ou leur opposé */
+	protected void facteur() {
+		String m = mot();
+		if(m.equals("-")) {facteur(); emettre(NEG);
+		}else if(m.equals("(")) {expression(); attendre(")");
+		}else if(m.startsWith(":")) {
+			Integer i = parametres.get(m);
+			if(i==null) throw new ErreurLogo("variable inconnue : "+m);
+			emettre(LOCAL); emettre(i);
+		}else{
+			double v;
+			try{
+				v = Double.parseDouble(m);
+			}catch(NumberFormatException e){
+				throw new ErreurLogo("nombre attendu : "+m);
+			}
+			if(nbConstantes==constantes.length) constantes = Arrays.copyOf(constantes, 2*nbConstantes);
+			constantes[nbConstantes] = v;
+			emettre(CONST); emettre(nbConstantes++);
+		}
+	}
+	/** @return le mot courant, qui est consommé */
+	protected String mot() {
+		if(pos>=mots.size()) throw new ErreurLogo("fin de texte inattendue");
+		return mots.get(pos++);
+	}
+	/** @return true si le mot courant est m, qui est alors consommé */
+	protected boolean suivant(String m) {
+		if(pos<mots.size() && mots.get(pos).equals(m)) {pos++; return true;}
+		return false;
+	}
+	/** Consomme le mot m, qui doit être le mot courant */
+	protected void attendre(String m) {
+		if(!suivant(m)) throw new ErreurLogo(m+" attendu"+(pos<mots.size() ? " au lieu de "+mots.get(pos) : ""));
+	}
+	/** Ajoute un mot au code */
+	protected void emettre(int c) {
+		if(taille==code.length) code = Arrays.copyOf(code, 2*taille);
+		code[taille++] = c;
+	}
+}
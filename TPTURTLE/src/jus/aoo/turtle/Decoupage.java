@@ -0,0 +1,105 @@
+package jus.aoo.turtle;
+
+/**
+ * Découpage de déplacements par un rectangle [xmin,xmax]x[ymin,ymax], selon Liang et Barsky :
+ * un déplacement (x,y)+t(dx,dy), t dans [0,1], est réduit à l'intervalle de t pour lequel
+ * il est dans le rectangle, chaque axe étant traité indépendamment.
+ * Les versions par lot opèrent sur des tableaux de coordonnées séparés ; leurs boucles,
+ * sans appel ni allocation, se prêtent à la vectorisation par le compilateur à la volée.
+ * @version 1.0
+ * @see MoteurTortue#distanceReelle(double, double, double)
+ */
+public class Decoupage {
+	protected double xmin, ymin, xmax, ymax; // le rectangle de découpage
+	/**
+	 * Construction d'un découpage
+	 * @param xmin l'abscisse minimale
+	 * @param ymin l'ordonnée minimale
+	 * @param xmax l'abscisse maximale
+	 * @param ymax l'ordonnée maximale
+	 * @require rectangleValide : xmin<=xmax && ymin<=ymax
+	 */
+	public Decoupage(double xmin, double ymin, double xmax, double ymax) {
+		this.xmin=xmin; this.ymin=ymin;
+		this.xmax=xmax; this.ymax=ymax;
+	}
+	/**
+	 * Calcule la fraction d'un déplacement partant du rectangle qui y reste
+	 * @param x l'abscisse de départ
+	 * @param y l'ordonnée de départ
+	 * @param dx le déplacement en abscisse
+	 * @param dy le déplacement en ordonnée
+	 * @return la plus grande fraction t de [0,1] telle que (x,y)+t(dx,dy) soit dans le rectangle
+	 * @require departVisible : xmin<=x && x<=xmax && ymin<=y && y<=ymax
+	 */
+	public double sortie(double x, double y, double dx, double dy) {
+		double ix = 1/dx, iy = 1/dy;
+		return fraction((xmin-x)*ix,(xmax-x)*ix,(ymin-y)*iy,(ymax-y)*iy);
+	}
+	/**
+	 * Calcule pour un lot de déplacements partant du rectangle la fraction de chacun qui y reste
+	 * @param x les abscisses de départ
+	 * @param y les ordonnées de départ
+	 * @param dx les déplacements en abscisse
+	 * @param dy les déplacements en ordonnée
+	 * @param t les fractions calculées
+	 * @param n le nombre de déplacements
+	 * @require departsVisibles : chaque départ est dans le rectangle
+	 */
+	public void sorties(double[] x, double[] y, double[] dx, double[] dy, double[] t, int n) {
+		double x0=xmin, y0=ymin, x1=xmax, y1=ymax;
+		for(int i=0; i<n; i++) {
+			double ix = 1/dx[i], iy = 1/dy[i];
+			t[i] = fraction((x0-x[i])*ix,(x1-x[i])*ix,(y0-y[i])*iy,(y1-y[i])*iy);
+		}
+	}
+	/**
+	 * Calcule la fraction d'un déplacement avant d'atteindre le bord, à partir des paramètres
+	 * d'intersection avec les quatre côtés. Le départ étant dans le rectangle, la sortie d'une
+	 * bande est le plus grand des deux paramètres, quel que soit le signe du déplacement.
+	 * Les choix par opérateur conditionnel, plus rapides ici que Math.min et Math.max, sont
+	 * ordonnés pour qu'un paramètre indéfini (NaN, départ sur le bord d'un axe sans déplacement)
+	 * laisse la bande sans effet.
+	 * @param ax le paramètre d'intersection avec le côté gauche
+	 * @param bx le paramètre d'intersection avec le côté droit
+	 * @param ay le paramètre d'intersection avec le côté bas
+	 * @param by le paramètre d'intersection avec le côté haut
+	 * @return la fraction, dans [0,1]
+	 */
+	protected static double fraction(double ax, double bx, double ay, double by) {
+		double tx = ax>bx ? ax : bx, ty = ay>by ? ay : by;
+		double t = tx<1 ? tx : 1;
+		t = ty<t ? ty : t;
+		return t>0 ? t : 0;
+	}
+	/**
+	 * Découpe un lot de segments quelconques : pour chacun, calcule l'intervalle [entree,sortie]
+	 * des valeurs de t pour lesquelles (x,y)+t(dx,dy) est dans le rectangle
+	 * @param x les abscisses des origines
+	 * @param y les ordonnées des origines
+	 * @param dx les déplacements en abscisse
+	 * @param dy les déplacements en ordonnée
+	 * @param entree les débuts des parties visibles
+	 * @param sortie les fins des parties visibles ; un segment est invisible si entree>sortie
+	 * @param n le nombre de segments
+	 * @return le nombre de segments visibles
+	 */
+	public int decouper(double[] x, double[] y, double[] dx, double[] dy, double[] entree, double[] sortie, int n) {
+		double x0=xmin, y0=ymin, x1=xmax, y1=ymax;
+		for(int i=0; i<n; i++) {
+			double px=x[i], py=y[i], ix=1/dx[i], iy=1/dy[i];
+			double ax = (x0-px)*ix, bx = (x1-px)*ix, ay = (y0-py)*iy, by = (y1-py)*iy;
+			// un axe sans déplacement donne deux infinis de même signe si l'origine est hors de
+			// la bande, de signes opposés sinon, ou NaN sur le bord : la bande entière est alors retenue
+			if(ax!=ax || bx!=bx) {ax = Double.NEGATIVE_INFINITY; bx = Double.POSITIVE_INFINITY;}
+			if(ay!=ay || by!=by) {ay = Double.NEGATIVE_INFINITY; by = Double.POSITIVE_INFINITY;}
+			double ex = ax<bx ? ax : bx, ey = ay<by ? ay : by, sx = ax>bx ? ax : bx, sy = ay>by ? ay : by;
+			double e = ex>ey ? ex : ey, s = sx<sy ? sx : sy;
+			entree[i] = e>0 ? e : 0;
+			sortie[i] = s<1 ? s : 1;
+		}
+		int nb=0;
+		for(int i=0; i<n; i++) if(entree[i]<=sortie[i]) nb++;
+		return nb;
+	}
+}
@@ -0,0 +1,121 @@
+package jus.aoo.turtle;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Écrit une suite de commandes de tortue dans un fichier binaire, relu par {@link LecteurCommandes}.
+ * Les commandes reçues sont enregistrées, pas exécutées. Le format, petit-boutiste, est :
+ * <UL>
+ *   <LI>un en-tête : MAGIQUE (int) puis VERSION (int) ;</LI>
+ *   <LI>les commandes : un code d'opération de {@link Programme} (byte) suivi de ses
+ *   opérandes (double), aucun pour lever et baisser, deux pour allerA ;</LI>
+ *   <LI>l'index : la position dans le fichier de chaque commande de rang multiple de
+ *   PAS_INDEX (long), puis le nombre de commandes (long), le nombre d'entrées de l'index
+ *   (int) et MAGIQUE_INDEX (int).</LI>
+ * </UL>
+ * L'index n'est écrit qu'à la fermeture.
+ * @version 1.0
+ */
+public class EcrivainCommandes implements _Tortue, Closeable {
+	/** la signature d'un fichier de commandes, "TORT" */
+	public static final int MAGIQUE = 0x54524f54;
+	/** la signature de l'index, "TIDX" */
+	public static final int MAGIQUE_INDEX = 0x58444954;
+	/** la version du format */
+	public static final int VERSION = 1;
+	/** la taille de l'en-tête, en octets */
+	public static final int EN_TETE = 8;
+	/** le nombre de commandes entre deux entrées de l'index */
+	public static final int PAS_INDEX = 4096;
+	protected FileChannel canal;  // le fichier écrit
+	protected ByteBuffer tampon;  // les octets en attente d'écriture
+	protected long position;      // la position dans le fichier de la prochaine commande
+	protected long nbCommandes;   // le nombre de commandes écrites
+	protected long[] index = new long[64]; // la position des commandes de rang multiple de PAS_INDEX
+	protected int nbIndex;        // le nombre d'entrées de l'index
+	/**
+	 * Création d'un fichier de commandes
+	 * @param fichier le fichier, remplacé s'il existe
+	 * @throws IOException si le fichier ne peut être créé
+	 */
+	public EcrivainCommandes(Path fichier) throws IOException {
+		canal = FileChannel.open(fichier,StandardOpenOption.CREATE,StandardOpenOption.TRUNCATE_EXISTING,StandardOpenOption.WRITE);
+		tampon = ByteBuffer.allocateDirect(1<<20).order(ByteOrder.LITTLE_ENDIAN);
+		tampon.putInt(MAGIQUE).putInt(VERSION);
+		position = EN_TETE;
+	}
+	/** @see jus.aoo.turtle._Tortue#avancer(double) */
+	public void avancer(double d) {commande(Programme.AVANCER,8).putDouble(d);}
+	/** @see jus.aoo.turtle._Tortue#reculer(double) */
+	public void reculer(double d) {commande(Programme.RECULER,8).putDouble(d);}
+	/** @see jus.aoo.turtle._Tortue#droite(double) */
+	public void droite(double a) {commande(Programme.DROITE,8).putDouble(a);}
+	/** @see jus.aoo.turtle._Tortue#gauche(double) */
+	public void gauche(double a) {commande(Programme.GAUCHE,8).putDouble(a);}
+	/** @see jus.aoo.turtle._Tortue#lever() */
+	public void lever() {commande(Programme.LEVER,0);}
+	/** @see jus.aoo.turtle._Tortue#baisser() */
+	public void baisser() {commande(Programme.BAISSER,0);}
+	/** @see jus.aoo.turtle._Tortue#allerA(double, double) */
+	public void allerA(double dx, double dy) {commande(Programme.ALLER_A,16).putDouble(dx).putDouble(dy);}
+	/** @return le nombre de commandes écrites */
+	public long nbCommandes() {return nbCommandes;}
+	/**
+	 * Écrit l'index et ferme le fichier
+	 * @throws IOException si l'écriture échoue
+	 */
+	public void close() throws IOException {
+		if(canal==null) return;
+		try{
+			for(int i=0; i<nbIndex; i++) place(8).putLong(index[i]);
+			place(16).putLong(nbCommandes).putInt(nbIndex).putInt(MAGIQUE_INDEX);
+			vider();
+		}finally{
+			canal.close();
+			canal = null;
+		}
+	}
+	/**
+	 * Commence l'écriture d'une commande
+	 * @param code le code d'opération
+	 * @param taille la taille des opérandes, en octets
+	 * @return le tampon où écrire les opérandes
+	 */
+	protected ByteBuffer commande(byte code, int taille) {
+		if(nbCommandes%PAS_INDEX==0) {
+			if(nbIndex==index.length) index = Arrays.copyOf(index, 2*nbIndex);
+			index[nbIndex++] = position;
+		}
+		nbCommandes++;
+		position += 1+taille;
+		return place(1+taille).put(code);
+	}
+	/**
+	 * Assure la place de n octets dans le tampon
+	 * @param n le nombre d'octets
+	 * @return le tampon
+	 */
+	protected ByteBuffer place(int n) {
+		if(tampon.remaining()<n) {
+			try{
+				vider();
+			}catch(IOException e){
+				throw new java.io.UncheckedIOException(e);
+			}
+		}
+		return tampon;
+	}
+	/** Écrit le contenu du tampon dans le fichier */
+	protected void vider() throws IOException {
+		tampon.flip();
+		while(tampon.hasRemaining()) canal.write(tampon);
+		tampon.clear();
+	}
+}
@@ -0,0 +1,15 @@
+package jus.aoo.turtle;
+
+/**
+ * Erreur détectée à la compilation d'un programme Logo, ou dépassement du budget de son exécution.
+ * @version 1.0
+ * @see CompilateurLogo
+ * @see ProgrammeLogo
+ */
+public class ErreurLogo extends RuntimeException {
+	private static final long serialVersionUID = -2407551327346839151L;
+	/**
+	 * @param message la description de l'erreur
+	 */
+	public ErreurLogo(String message) {super(message);}
+}
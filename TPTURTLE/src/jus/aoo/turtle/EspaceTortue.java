@@ -0,0 +1,213 @@
+package jus.aoo.turtle;
+
+import static jus.aoo.geometrie.DrawingSpace.Repere.CENTRE;
+
+import java.awt.BasicStroke;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.util.List;
+
+import jus.aoo.geometrie.DrawingSpace;
+import jus.aoo.geometrie.Point;
+import jus.aoo.geometrie.Segment;
+import jus.aoo.geometrie._Figure;
+
+/**
+ * L'espace de déplacement de la tortue.
+ * Il complète DrawingSpace par l'ajout groupé de segments : un lot de segments
+ * ne provoque qu'un seul réaffichage. Les segments ajoutés par lot sont conservés
+ * hors du tas dans une trace compacte, présentée aux tracés comme une seule figure
+ * qui ne rastérise que les segments nouveaux à chaque affichage.
+ * Les figures tracées et permanentes sont indexées par leur cadre (voir IndexFigures) :
+ * la désignation d'une figure par un point ou un rectangle n'examine que les figures proches.
+ * Les ajouts ne réaffichent que la zone des segments ajoutés, et l'affichage d'une zone
+ * ne dessine que les figures dont le cadre la rencontre, retrouvées par les mêmes index.
+ * @version 1.0
+ * @see Turtle
+ */
+public class EspaceTortue extends DrawingSpace {
+	private static final long serialVersionUID = 4861307415306829537L;
+	protected TraceCompacte trace; // les segments ajoutés par lot
+	protected FigureTrace figureTrace; // la figure présentant la trace parmi les tracés
+	protected IndexFigures indexTraces = new IndexFigures();     // l'index des tracés
+	protected IndexFigures indexPermanents = new IndexFigures(); // l'index des figures permanentes
+	protected static final int MARGE = 2; // la marge autour d'une zone à réafficher, pour l'épaisseur du trait et les arrondis
+	protected static final Stroke POINTILLES = new BasicStroke(1,BasicStroke.CAP_BUTT,BasicStroke.JOIN_MITER,5,new float[]{5},0); // le trait des figures temporaires, celui de DrawingSpace
+	/** Construction d'un espace non extensible */
+	public EspaceTortue() {this(false);}
+	/**
+	 * Construction d'un espace
+	 * @param extensible true si l'espace s'étend pour contenir les figures
+	 */
+	public EspaceTortue(boolean extensible) {
+		super(extensible);
+		trace = new TraceCompacte();
+		figureTrace = new FigureTrace(trace,this);
+		traces.add(figureTrace);
+		indexTraces.ajouter(figureTrace);
+	}
+	/**
+	 * Ajoute un lot de segments aux tracés et réaffiche une seule fois la zone qu'ils couvrent
+	 * @param coordonnees les quadruplets (x1,y1,x2,y2) des segments
+	 * @param nb le nombre de segments à ajouter
+	 * @require argumentValide : coordonnees.length>=4*nb
+	 */
+	public synchronized void ajouter(double[] coordonnees, int nb) {
+		if(nb==0) return;
+		double xMin = Double.POSITIVE_INFINITY, yMin = Double.POSITIVE_INFINITY;
+		double xMax = Double.NEGATIVE_INFINITY, yMax = Double.NEGATIVE_INFINITY;
+		for(int i=0; i<4*nb; i+=4) {
+			// hors du repère centré, l'ajout unitaire contrôle le quadrant de chaque segment
+			if(repere==CENTRE) trace.trace(coordonnees[i],coordonnees[i+1],coordonnees[i+2],coordonnees[i+3]);
+			else add(new Segment(new Point(coordonnees[i],coordonnees[i+1]),new Point(coordonnees[i+2],coordonnees[i+3])));
+			xMin = Math.min(xMin, Math.min(coordonnees[i],coordonnees[i+2]));
+			xMax = Math.max(xMax, Math.max(coordonnees[i],coordonnees[i+2]));
+			yMin = Math.min(yMin, Math.min(coordonnees[i+1],coordonnees[i+3]));
+			yMax = Math.max(yMax, Math.max(coordonnees[i+1],coordonnees[i+3]));
+		}
+		if(repere==CENTRE) reafficher(xMin,yMin,xMax,yMax);
+	}
+	/**
+	 * Ajoute un segment aux tracés
+	 * @param x1 l'abscisse de l'origine
+	 * @param y1 l'ordonnée de l'origine
+	 * @param x2 l'abscisse de l'extrémité
+	 * @param y2 l'ordonnée de l'extrémité
+	 */
+	public synchronized void ajouter(double x1, double y1, double x2, double y2) {
+		if(repere==CENTRE) {
+			trace.trace(x1,y1,x2,y2);
+			reafficher(Math.min(x1,x2),Math.min(y1,y2),Math.max(x1,x2),Math.max(y1,y2));
+		}else add(new Segment(new Point(x1,y1),new Point(x2,y2)));
+	}
+	/**
+	 * Réaffiche la zone de l'espace couvrant un rectangle du repère des figures,
+	 * ou tout l'espace s'il est extensible
+	 * @param xMin l'abscisse minimale
+	 * @param yMin l'ordonnée minimale
+	 * @param xMax l'abscisse maximale
+	 * @param yMax l'ordonnée maximale
+	 */
+	public synchronized void reafficher(double xMin, double yMin, double xMax, double yMax) {
+		if(extensible) {repaint(); return;}
+		AffineTransform t = new AffineTransform();
+		for(AffineTransform a : transformations) t.concatenate(a);
+		Rectangle zone = t.createTransformedShape(new Rectangle2D.Double(xMin-MARGE,yMin-MARGE,xMax-xMin+2*MARGE,yMax-yMin+2*MARGE)).getBounds();
+		zone.grow(MARGE,MARGE);
+		repaint(zone);
+	}
+	/**
+	 * Restitue la trace des segments ajoutés par lot
+	 * @return la trace
+	 */
+	public TraceCompacte trace() {return trace;}
+	/* (non-Javadoc)
+	 * @see jus.aoo.geometrie.DrawingSpace#clear()
+	 */
+	public synchronized void clear() {
+		trace.clear();
+		super.clear();
+		traces.add(figureTrace);
+		indexTraces.clear();
+		indexTraces.ajouter(figureTrace);
+	}
+	/* (non-Javadoc)
+	 * @see jus.aoo.geometrie.DrawingSpace#add(jus.aoo.geometrie._Figure)
+	 */
+	public synchronized void add(_Figure f) {
+		// une figure refusée hors du quadrant visible n'est pas indexée
+		int n = traces.size();
+		super.add(f);
+		if(traces.size()>n) indexTraces.ajouter(f);
+	}
+	/* (non-Javadoc)
+	 * @see jus.aoo.geometrie.DrawingSpace#remove(jus.aoo.geometrie._Figure)
+	 */
+	public synchronized void remove(_Figure f) {
+		super.remove(f);
+		indexTraces.retirer(f);
+	}
+	/* (non-Javadoc)
+	 * @see jus.aoo.geometrie.DrawingSpace#addPermanent(jus.aoo.geometrie._Figure)
+	 */
+	public synchronized void addPermanent(_Figure f) {
+		int n = permanent.size();
+		super.addPermanent(f);
+		if(permanent.size()>n) indexPermanents.ajouter(f);
+	}
+	/* (non-Javadoc)
+	 * @see jus.aoo.geometrie.DrawingSpace#findFigure(java.awt.Point)
+	 */
+	public synchronized _Figure findFigure(java.awt.Point p) {return indexTraces.premiere(p);}
+	/* (non-Javadoc)
+	 * @see jus.aoo.geometrie.DrawingSpace#findFigures(java.awt.Point)
+	 */
+	public synchronized List<_Figure> findFigures(java.awt.Point p) {return indexTraces.contenant(p);}
+	/* (non-Javadoc)
+	 * @see jus.aoo.geometrie.DrawingSpace#selection(java.awt.Rectangle)
+	 */
+	public synchronized List<_Figure> selection(Rectangle r) {return indexTraces.selection(r);}
+	/**
+	 * Recherche les figures permanentes, obstacles notamment, contenant un point
+	 * @param p le point, dans le repère des figures
+	 * @return les figures, dans l'ordre d'ajout
+	 */
+	public synchronized List<_Figure> findPermanents(java.awt.Point p) {return indexPermanents.contenant(p);}
+	/**
+	 * Recherche les figures permanentes dont le barycentre est dans un rectangle
+	 * @param r le rectangle, dans le repère des figures
+	 * @return les figures, dans l'ordre d'ajout
+	 */
+	public synchronized List<_Figure> selectionPermanents(Rectangle r) {return indexPermanents.selection(r);}
+	/* (non-Javadoc)
+	 * @see javax.swing.JComponent#repaint(long, int, int, int, int)
+	 */
+	public void repaint(long tm, int x, int y, int width, int height) {
+		if(Mesures.ACTIVES) Mesures.REAFFICHAGES.increment();
+		super.repaint(tm,x,y,width,height);
+	}
+	/* (non-Javadoc)
+	 * @see jus.aoo.geometrie.DrawingSpace#paintComponent(java.awt.Graphics)
+	 */
+	public synchronized void paintComponent(Graphics g) {
+		long t0 = Mesures.ACTIVES ? System.nanoTime() : 0;
+		if(extensible || !(g instanceof Graphics2D)) super.paintComponent(g);
+		else{
+			// le fond, comme JComponent.paintComponent
+			if(ui!=null) {
+				Graphics fond = g.create();
+				try{ui.update(fond,this);}finally{fond.dispose();}
+			}
+			Graphics2D g2 = (Graphics2D)g;
+			for(AffineTransform a : transformations) g2.transform(a);
+			Rectangle zone = g2.getClipBounds();
+			dessiner(g2,permanent,indexPermanents,zone);
+			dessiner(g2,traces,indexTraces,zone);
+			Stroke trait = g2.getStroke();
+			g2.setStroke(POINTILLES);
+			dessiner(g2,temporaire,null,zone);
+			g2.setStroke(trait);
+		}
+		if(Mesures.ACTIVES) Mesures.DESSIN.enregistrer(System.nanoTime()-t0);
+	}
+	/**
+	 * Dessine les figures d'une liste rencontrant une zone
+	 * @param g le contexte graphique
+	 * @param figures la liste
+	 * @param index l'index de la liste, null pour tout dessiner
+	 * @param zone la zone à redessiner, dans le repère des figures, null pour tout dessiner
+	 */
+	protected void dessiner(Graphics g, List<_Figure> figures, IndexFigures index, Rectangle zone) {
+		if(index==null || zone==null) {
+			for(_Figure f : figures) f.draw(g);
+			return;
+		}
+		zone = new Rectangle(zone);
+		zone.grow(MARGE,MARGE);
+		for(_Figure f : index.recouvrant(zone)) f.draw(g);
+	}
+}
@@ -0,0 +1,189 @@
+package jus.aoo.turtle;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Exporte sans affichage un dessin de tortue : les segments d'une trace et les
+ * obstacles d'un registre, dans le repère centré de la feuille (origine au centre,
+ * ordonnées vers le haut).
+ * L'export PNG rastérise le dessin dans une image hors écran, utilisable avec
+ * java.awt.headless=true. L'export SVG transmet les segments au fur et à mesure
+ * de leur parcours : la mémoire occupée ne dépend pas du nombre de segments.
+ * Les fichiers sont écrits au travers d'un FileChannel.
+ * @version 1.0
+ * @see _Trace
+ */
+public class ExportTrace {
+	protected static final int SEGMENTS_PAR_CHEMIN = 1024; // le nombre maximal de segments d'un élément path
+	protected static final int TAILLE_TAMPON = 1<<16;      // la taille des tampons d'écriture
+	protected int largeur, hauteur; // les dimensions du dessin
+	protected Color fond = Color.WHITE, couleurTrace = Color.BLACK, couleurObstacle = Color.RED;
+	/**
+	 * Construction d'un export
+	 * @param largeur la largeur du dessin
+	 * @param hauteur la hauteur du dessin
+	 * @require dimensionsValides : largeur>0 && hauteur>0
+	 */
+	public ExportTrace(int largeur, int hauteur) {
+		this.largeur=largeur;
+		this.hauteur=hauteur;
+	}
+	/**
+	 * Fixe les couleurs du dessin
+	 * @param fond la couleur du fond
+	 * @param trace la couleur des segments
+	 * @param obstacle la couleur des obstacles
+	 */
+	public void setCouleurs(Color fond, Color trace, Color obstacle) {
+		this.fond=fond;
+		couleurTrace=trace;
+		couleurObstacle=obstacle;
+	}
+	/**
+	 * Rastérise le dessin dans une image
+	 * @param trace les segments
+	 * @param obstacles les obstacles, null si aucun
+	 * @return l'image
+	 */
+	public BufferedImage image(_Trace trace, RegistreObstacles obstacles) {
+		BufferedImage image = new BufferedImage(largeur,hauteur,BufferedImage.TYPE_INT_RGB);
+		final Graphics2D g = image.createGraphics();
+		g.setColor(fond);
+		g.fillRect(0,0,largeur,hauteur);
+		g.translate(largeur/2,hauteur/2);
+		g.scale(1,-1);
+		if(obstacles!=null) {
+			g.setColor(couleurObstacle);
+			for(int i=0; i<obstacles.nbObstacles(); i++) {
+				java.awt.Rectangle cadre = obstacles.cadre(i);
+				g.fillRect(cadre.x,cadre.y,cadre.width,cadre.height);
+			}
+		}
+		g.setColor(couleurTrace);
+		trace.parcourir(new _Traceur(){
+			public void trace(double x1, double y1, double x2, double y2) {
+				g.drawLine((int)Math.round(x1),(int)Math.round(y1),(int)Math.round(x2),(int)Math.round(y2));
+			}
+		});
+		g.dispose();
+		return image;
+	}
+	/**
+	 * Écrit le dessin au format PNG
+	 * @param trace les segments
+	 * @param obstacles les obstacles, null si aucun
+	 * @param fichier le fichier produit, remplacé s'il existe
+	 * @throws IOException si l'écriture échoue
+	 */
+	public void png(_Trace trace, RegistreObstacles obstacles, Path fichier) throws IOException {
+		BufferedImage image = image(trace,obstacles);
+		try(FileChannel canal = ouvrir(fichier);
+			OutputStream out = new BufferedOutputStream(Channels.newOutputStream(canal),TAILLE_TAMPON)){
+			if(!ImageIO.write(image,"png",out)) throw new IOException("pas d'encodeur PNG disponible");
+		}
+	}
+	/**
+	 * Écrit le dessin au format SVG
+	 * @param trace les segments
+	 * @param obstacles les obstacles, null si aucun
+	 * @param fichier le fichier produit, remplacé s'il existe
+	 * @throws IOException si l'écriture échoue
+	 */
+	public void svg(_Trace trace, RegistreObstacles obstacles, Path fichier) throws IOException {
+		try(FileChannel canal = ouvrir(fichier);
+			Writer out = new BufferedWriter(Channels.newWriter(canal,"UTF-8"),TAILLE_TAMPON)){
+			svg(trace,obstacles,out);
+		}
+	}
+	/**
+	 * Écrit le dessin au format SVG
+	 * @param trace les segments
+	 * @param obstacles les obstacles, null si aucun
+	 * @param out la destination, qui n'est pas fermée
+	 * @throws IOException si l'écriture échoue
+	 */
+	public void svg(_Trace trace, RegistreObstacles obstacles, final Writer out) throws IOException {
+		out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		out.write("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\""+largeur+"\" height=\""+hauteur
+				+"\" viewBox=\"0 0 "+largeur+" "+hauteur+"\">\n");
+		out.write("<rect width=\"100%\" height=\"100%\" fill=\""+couleur(fond)+"\"/>\n");
+		out.write("<g transform=\"translate("+largeur/2+" "+hauteur/2+") scale(1 -1)\">\n");
+		if(obstacles!=null && obstacles.nbObstacles()>0) {
+			out.write("<g fill=\""+couleur(couleurObstacle)+"\">\n");
+			for(int i=0; i<obstacles.nbObstacles(); i++) {
+				java.awt.Rectangle cadre = obstacles.cadre(i);
+				out.write("<rect x=\""+cadre.x+"\" y=\""+cadre.y+"\" width=\""+cadre.width+"\" height=\""+cadre.height+"\"/>\n");
+			}
+			out.write("</g>\n");
+		}
+		out.write("<g fill=\"none\" stroke=\""+couleur(couleurTrace)+"\">\n");
+		// les segments consécutifs et jointifs sont enchaînés dans un même chemin
+		class Chemins implements _Traceur {
+			double xf=Double.NaN, yf=Double.NaN; // l'extrémité du segment précédent
+			int nb; // le nombre de segments du chemin en cours
+			public void trace(double x1, double y1, double x2, double y2) {
+				try{
+					if(nb==SEGMENTS_PAR_CHEMIN) {out.write("\"/>\n"); nb=0;}
+					if(nb==0) {
+						out.write("<path d=\"M");
+						nombre(out,x1); out.write(' '); nombre(out,y1);
+					}else if(x1!=xf || y1!=yf) {
+						out.write(" M");
+						nombre(out,x1); out.write(' '); nombre(out,y1);
+					}
+					out.write(" L");
+					nombre(out,x2); out.write(' '); nombre(out,y2);
+					xf=x2; yf=y2;
+					nb++;
+				}catch(IOException e){
+					throw new UncheckedIOException(e);
+				}
+			}
+		}
+		Chemins chemins = new Chemins();
+		try{
+			trace.parcourir(chemins);
+		}catch(UncheckedIOException e){
+			throw e.getCause();
+		}
+		if(chemins.nb>0) out.write("\"/>\n");
+		out.write("</g>\n</g>\n</svg>\n");
+	}
+	/**
+	 * Écrit un nombre arrondi au centième
+	 * @param out la destination
+	 * @param v le nombre
+	 * @throws IOException si l'écriture échoue
+	 */
+	protected static void nombre(Writer out, double v) throws IOException {
+		long c = Math.round(v*100);
+		if(c<0) {out.write('-'); c=-c;}
+		out.write(Long.toString(c/100));
+		int f = (int)(c%100);
+		if(f!=0) {
+			out.write('.');
+			out.write('0'+f/10);
+			if(f%10!=0) out.write('0'+f%10);
+		}
+	}
+	/** @return la couleur c au format #rrggbb */
+	protected static String couleur(Color c) {return String.format("#%06x",c.getRGB()&0xffffff);}
+	/** @return un canal d'écriture sur le fichier, vidé s'il existe */
+	protected static FileChannel ouvrir(Path fichier) throws IOException {
+		return FileChannel.open(fichier,StandardOpenOption.CREATE,StandardOpenOption.TRUNCATE_EXISTING,StandardOpenOption.WRITE);
+	}
+}
@@ -0,0 +1,117 @@
+package jus.aoo.turtle;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import jus.aoo.geometrie.Figure;
+import jus.aoo.geometrie.Point;
+import jus.aoo.geometrie.Segment;
+import jus.aoo.geometrie.Vecteur;
+
+/**
+ * Présente comme une seule figure de l'espace de dessin les obstacles d'un registre
+ * ajoutés par lot, chargés d'une scène notamment. Un affichage ne dessine que les
+ * obstacles rencontrant la zone à redessiner, recherchés dans la grille du registre,
+ * sans créer d'objet Obstacle.
+ * @version 1.0
+ * @see RegistreObstacles
+ * @see SceneObstacles
+ */
+public class FigureObstacles extends Figure {
+	protected RegistreObstacles obstacles; // le registre
+	protected int debut, fin;              // les numéros des obstacles présentés, fin exclue
+	protected Rectangle cadre;             // l'union des cadres des obstacles présentés
+	/**
+	 * Construction d'une figure
+	 * @param obstacles le registre
+	 * @param debut le numéro du premier obstacle présenté
+	 * @param fin le numéro suivant celui du dernier obstacle présenté
+	 * @require argumentValide : obstacles!=null && 0<=debut && debut<=fin && fin<=obstacles.nbObstacles()
+	 */
+	public FigureObstacles(RegistreObstacles obstacles, int debut, int fin) {
+		this.obstacles=obstacles;
+		this.debut=debut;
+		this.fin=fin;
+		for(int n=debut; n<fin; n++) {
+			if(cadre==null) cadre = obstacles.cadre(n);
+			else cadre.add(obstacles.cadre(n));
+		}
+		if(cadre==null) cadre = new Rectangle();
+	}
+	/* (non-Javadoc)
+	 * @see jus.aoo.geometrie.Figure#drawing(java.awt.Graphics)
+	 */
+	protected void drawing(Graphics g) {
+		Color oldColor = g.getColor();
+		g.setColor(Color.RED);
+		Rectangle zone = g.getClipBounds();
+		if(zone==null) zone = cadre;
+		for(int n : obstacles.recouvrant(zone.x, zone.y, zone.width, zone.height)) {
+			if(n<debut || n>=fin) continue;
+			Rectangle r = obstacles.cadre(n);
+			g.fillRect(r.x,r.y,r.width,r.height);
+		}
+		g.setColor(oldColor);
+	}
+	/* (non-Javadoc)
+	 * @see jus.aoo.geometrie._Figure#cadre()
+	 */
+	public Rectangle cadre() {return new Rectangle(cadre);}
+	/* (non-Javadoc)
+	 * @see jus.aoo.geometrie.Figure#barycentre()
+	 */
+	public Point barycentre() {return new Point(cadre.getCenterX(),cadre.getCenterY());}
+	/* (non-Javadoc)
+	 * @see jus.aoo.geometrie.Figure#nbSommet()
+	 */
+	public int nbSommet() {return 4*(fin-debut);}
+	/* (non-Javadoc)
+	 * @see jus.aoo.geometrie._Figure#sommet(int)
+	 */
+	public Point sommet(int num) {return obstacles.obstacle(debut+num/4).sommet(num%4);}
+	/* (non-Javadoc)
+	 * @see jus.aoo.geometrie._Figure#segments()
+	 */
+	public Iterator<Segment> segments() {
+		return new Iterator<Segment>() {
+			int num = 0;
+			public boolean hasNext() {return num<nbSommet();}
+			public Segment next() {
+				if(!hasNext()) throw new NoSuchElementException();
+				Segment s = new Segment(sommet(num),sommet(num%4==3 ? num-3 : num+1));
+				num++;
+				return s;
+			}
+			public void remove() {throw new UnsupportedOperationException();}
+		};
+	}
+	/* (non-Javadoc)
+	 * @see jus.aoo.geometrie.Figure#perimetre()
+	 */
+	public double perimetre() {
+		double p = 0;
+		for(int n=debut; n<fin; n++) {
+			Rectangle r = obstacles.cadre(n);
+			p += 2.0*(r.width+r.height);
+		}
+		return p;
+	}
+	/* (non-Javadoc)
+	 * @see jus.aoo.geometrie._Figure#contains(jus.aoo.geometrie.Point)
+	 */
+	public boolean contains(Point p) {
+		double px = p.abscisse(), py = p.ordonnee();
+		for(int n : obstacles.recouvrant((int)Math.floor(px), (int)Math.floor(py), 1, 1)) {
+			Rectangle r = obstacles.cadre(n);
+			if(n>=debut && n<fin && px>=r.x && px<=r.x+r.width && py>=r.y && py<=r.y+r.height) return true;
+		}
+		return false;
+	}
+	/** une scène n'est pas déplaçable */
+	public void translation(Vecteur v) {}
+	/** une scène n'est pas déplaçable */
+	public void rotation(double a) {}
+}
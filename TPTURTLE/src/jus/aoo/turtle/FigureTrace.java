@@ -0,0 +1,205 @@
+package jus.aoo.turtle;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import jus.aoo.geometrie.DrawingSpace;
+import jus.aoo.geometrie.Figure;
+import jus.aoo.geometrie.Point;
+import jus.aoo.geometrie.Segment;
+import jus.aoo.geometrie.Vecteur;
+
+/**
+ * Présente une trace compacte comme une seule figure de l'espace de dessin.
+ * Les segments sont dessinés directement depuis la trace, sans construire de Segment.
+ * Associée à un espace de dessin, la figure rastérise chaque segment une seule fois dans
+ * une image de la taille de l'espace, conservée d'un affichage à l'autre : un affichage
+ * ne dessine que les segments nouveaux puis recopie l'image. L'image est reconstruite si
+ * l'espace change de taille ou de transformations, ou si la trace oublie des segments.
+ * Les segments sont alors simplifiés à un demi-pixel près avant d'être rastérisés
+ * (voir Simplificateur) ; la trace simplifiée est conservée tant que l'échelle de l'espace
+ * ne change pas, de sorte qu'une reconstruction de l'image ne coûte que le nombre de segments
+ * visibles à l'écran. La trace elle-même reste complète, pour l'export notamment.
+ * @version 1.0
+ * @see TraceCompacte
+ */
+public class FigureTrace extends Figure {
+	protected TraceCompacte trace; // la trace représentée
+	protected DrawingSpace espace; // l'espace dont la taille et les transformations fixent l'image, null si aucun
+	protected BufferedImage fond;  // les segments déjà rastérisés, en coordonnées de l'espace
+	protected AffineTransform transformationFond; // les transformations de l'espace lors de la rastérisation
+	protected Color couleurFond;   // la couleur des segments rastérisés
+	protected int generationFond;  // la génération de la trace lors de la simplification
+	protected int nbRasterises;    // le nombre de segments simplifiés déjà rastérisés
+	protected static final double TOLERANCE = 0.5; // l'écart admis par la simplification, en pixels
+	protected TraceCompacte simplifiee;    // la trace simplifiée, dans les coordonnées de la trace
+	protected Simplificateur simplificateur; // alimente la trace simplifiée
+	protected int nbSimplifies;   // le nombre de segments de la trace déjà simplifiés
+	protected IndexSegments index; // l'index des segments pour la désignation, créé à la première désignation
+	/**
+	 * Construction d'une figure dessinant tous les segments à chaque affichage
+	 * @param trace la trace représentée
+	 * @require argumentValide : trace!=null
+	 */
+	public FigureTrace(TraceCompacte trace) {this(trace,null);}
+	/**
+	 * Construction d'une figure rastérisant incrémentalement la trace
+	 * @param trace la trace représentée
+	 * @param espace l'espace où la figure est affichée, null pour tout redessiner à chaque affichage
+	 * @require argumentValide : trace!=null
+	 */
+	public FigureTrace(TraceCompacte trace, DrawingSpace espace) {
+		this.trace=trace;
+		this.espace=espace;
+	}
+	/**
+	 * Restitue la trace représentée
+	 * @return la trace
+	 */
+	public TraceCompacte trace() {return trace;}
+	/* (non-Javadoc)
+	 * @see jus.aoo.geometrie.Figure#drawing(java.awt.Graphics)
+	 */
+	protected void drawing(Graphics g) {
+		if(espace==null || !(g instanceof Graphics2D)) {dessiner(g,0,trace.nbSegments()); return;}
+		int largeur = espace.getWidth(), hauteur = espace.getHeight();
+		if(largeur<=0 || hauteur<=0) return;
+		AffineTransform t = new AffineTransform();
+		for(AffineTransform a : espace.Transformations()) t.concatenate(a);
+		int n = trace.nbSegments();
+		double tolerance = TOLERANCE/Math.sqrt(Math.abs(t.getDeterminant()));
+		if(simplifiee==null || tolerance!=simplificateur.tolerance() || trace.generation()!=generationFond || n<nbSimplifies) {
+			if(simplifiee==null) simplifiee = new TraceCompacte(); else simplifiee.clear();
+			simplificateur = new Simplificateur(simplifiee,tolerance);
+			generationFond = trace.generation();
+			nbSimplifies = 0;
+			fond = null;
+		}
+		if(nbSimplifies<n) {
+			trace.parcourir(simplificateur,nbSimplifies,n);
+			simplificateur.terminer();
+			nbSimplifies = n;
+		}
+		int m = simplifiee.nbSegments();
+		if(fond==null || fond.getWidth()!=largeur || fond.getHeight()!=hauteur || !t.equals(transformationFond)
+				|| !g.getColor().equals(couleurFond)) {
+			fond = new BufferedImage(largeur,hauteur,BufferedImage.TYPE_INT_ARGB);
+			transformationFond = t;
+			couleurFond = g.getColor();
+			nbRasterises = 0;
+		}
+		if(nbRasterises<m) {
+			Graphics2D gf = fond.createGraphics();
+			gf.transform(t);
+			gf.setColor(couleurFond);
+			dessiner(gf,simplifiee,nbRasterises,m);
+			gf.dispose();
+			nbRasterises = m;
+		}
+		// l'image est en coordonnées de l'espace : on annule ses transformations pour la recopier
+		Graphics2D g2 = (Graphics2D)g;
+		AffineTransform courante = g2.getTransform();
+		try{
+			AffineTransform base = new AffineTransform(courante);
+			base.concatenate(t.createInverse());
+			g2.setTransform(base);
+			g2.drawImage(fond,0,0,null);
+		}catch(NoninvertibleTransformException e){
+			dessiner(g,0,n);
+		}finally{
+			g2.setTransform(courante);
+		}
+	}
+	/**
+	 * Dessine les segments de numéro compris entre debut inclus et fin exclue
+	 * @param g le contexte graphique
+	 * @param debut le numéro du premier segment dessiné
+	 * @param fin le numéro suivant celui du dernier segment dessiné
+	 */
+	protected void dessiner(Graphics g, int debut, int fin) {dessiner(g,trace,debut,fin);}
+	/**
+	 * Dessine des segments d'une trace
+	 * @param g le contexte graphique
+	 * @param t la trace
+	 * @param debut le numéro du premier segment dessiné
+	 * @param fin le numéro suivant celui du dernier segment dessiné
+	 */
+	protected void dessiner(final Graphics g, TraceCompacte t, int debut, int fin) {
+		t.parcourir(new _Traceur(){
+			public void trace(double x1, double y1, double x2, double y2) {
+				g.drawLine(round(x1),round(y1),round(x2),round(y2));
+			}
+		},debut,fin);
+	}
+	/* (non-Javadoc)
+	 * @see jus.aoo.geometrie._Figure#cadre()
+	 */
+	public Rectangle cadre() {
+		if(trace.nbSegments()==0) return new Rectangle();
+		int x = (int)Math.floor(trace.xmin()), y = (int)Math.floor(trace.ymin());
+		return new Rectangle(x, y, (int)Math.ceil(trace.xmax())-x, (int)Math.ceil(trace.ymax())-y);
+	}
+	/* (non-Javadoc)
+	 * @see jus.aoo.geometrie.Figure#barycentre()
+	 */
+	public Point barycentre() {
+		if(trace.nbSegments()==0) return new Point(0,0);
+		return new Point((trace.xmin()+trace.xmax())/2,(trace.ymin()+trace.ymax())/2);
+	}
+	/* (non-Javadoc)
+	 * @see jus.aoo.geometrie.Figure#nbSommet()
+	 */
+	public int nbSommet() {return 2*trace.nbSegments();}
+	/* (non-Javadoc)
+	 * @see jus.aoo.geometrie._Figure#sommet(int)
+	 */
+	public Point sommet(int num) {
+		return new Point(trace.coordonnee(num/2,2*(num%2)),trace.coordonnee(num/2,2*(num%2)+1));
+	}
+	/* (non-Javadoc)
+	 * @see jus.aoo.geometrie._Figure#segments()
+	 */
+	public Iterator<Segment> segments() {
+		return new Iterator<Segment>() {
+			int n = 0;
+			public boolean hasNext() {return n<trace.nbSegments();}
+			public Segment next() {
+				if(!hasNext()) throw new NoSuchElementException();
+				Segment s = new Segment(sommet(2*n),sommet(2*n+1));
+				n++;
+				return s;
+			}
+			public void remove() {throw new UnsupportedOperationException();}
+		};
+	}
+	/* (non-Javadoc)
+	 * @see jus.aoo.geometrie.Figure#perimetre()
+	 */
+	public double perimetre() {
+		final double[] longueur = new double[1];
+		trace.parcourir(new _Traceur(){
+			public void trace(double x1, double y1, double x2, double y2) {longueur[0]+=Math.hypot(x2-x1,y2-y1);}
+		});
+		return longueur[0];
+	}
+	/**
+	 * Indique si un point est à moins d'une demi-unité de l'un des segments ;
+	 * seuls les segments voisins du point sont examinés (voir IndexSegments)
+	 * @see jus.aoo.geometrie._Figure#contains(jus.aoo.geometrie.Point)
+	 */
+	public boolean contains(Point p) {
+		if(index==null) index = new IndexSegments(trace);
+		return index.proche(p.abscisse(),p.ordonnee(),0.5);
+	}
+	/** une trace n'est pas déplaçable */
+	public void translation(Vecteur v) {}
+	/** une trace n'est pas déplaçable */
+	public void rotation(double a) {}
+}
@@ -0,0 +1,132 @@
+package jus.aoo.turtle;
+
+import java.util.Arrays;
+
+/**
+ * Grille non bornée de cellules carrées associant à chaque cellule un seau d'entiers.
+ * Seules les cellules non vides sont représentées, dans une table de hachage à adressage
+ * ouvert indexée par le couple (colonne, ligne) : l'accès à un seau ne dépend ni de
+ * l'étendue couverte ni du nombre de cellules.
+ * @version 1.0
+ * @see IndexFigures
+ * @see IndexSegments
+ */
+public class GrilleSeaux {
+	protected static final long VIDE = Long.MIN_VALUE; // la clé d'une case libre de la table
+	protected final double taille; // le côté d'une cellule
+	protected long[] cles;         // la clé (colonne, ligne) de chaque case, VIDE si elle est libre
+	protected int[][] seaux;       // le seau de chaque case
+	protected int[] nbParSeau;     // le nombre d'entiers de chaque seau
+	protected int nbCases;         // le nombre de cases occupées
+	/**
+	 * Construction d'une grille vide
+	 * @param taille le côté d'une cellule
+	 * @require argumentValide : taille>0
+	 */
+	public GrilleSeaux(double taille) {
+		this.taille=taille;
+		allouer(64);
+	}
+	/** @return le côté d'une cellule */
+	public double taille() {return taille;}
+	/**
+	 * @param x une abscisse
+	 * @return la colonne contenant x
+	 */
+	public int colonne(double x) {return (int)Math.max(Integer.MIN_VALUE+1, Math.min(Integer.MAX_VALUE-1, Math.floor(x/taille)));}
+	/**
+	 * @param y une ordonnée
+	 * @return la ligne contenant y
+	 */
+	public int ligne(double y) {return colonne(y);}
+	/**
+	 * Ajoute un entier au seau d'une cellule
+	 * @param c la colonne
+	 * @param l la ligne
+	 * @param v l'entier
+	 */
+	public void ajouter(int c, int l, int v) {
+		if(2*(nbCases+1)>cles.length) reallouer(2*cles.length);
+		long cle = cle(c,l);
+		int i = position(cle);
+		if(cles[i]==VIDE) {
+			cles[i]=cle;
+			seaux[i]=new int[2];
+			nbCases++;
+		}else if(nbParSeau[i]==seaux[i].length) seaux[i]=Arrays.copyOf(seaux[i], 2*seaux[i].length);
+		seaux[i][nbParSeau[i]++]=v;
+	}
+	/**
+	 * Retire la première occurrence d'un entier du seau d'une cellule ; l'ordre du seau n'est pas conservé
+	 * @param c la colonne
+	 * @param l la ligne
+	 * @param v l'entier
+	 * @return true si l'entier était présent
+	 */
+	public boolean retirer(int c, int l, int v) {
+		int i = trouver(c,l);
+		if(i<0) return false;
+		int[] s = seaux[i];
+		for(int k=0; k<nbParSeau[i]; k++)
+			if(s[k]==v) {
+				s[k]=s[--nbParSeau[i]];
+				return true;
+			}
+		return false;
+	}
+	/**
+	 * Recherche la case d'une cellule
+	 * @param c la colonne
+	 * @param l la ligne
+	 * @return la case, -1 si la cellule n'a pas de seau
+	 */
+	public int trouver(int c, int l) {
+		int i = position(cle(c,l));
+		return cles[i]==VIDE ? -1 : i;
+	}
+	/**
+	 * @param i une case rendue par trouver
+	 * @return le seau de la case, dont seuls les nbValeurs(i) premiers entiers sont significatifs
+	 */
+	public int[] valeurs(int i) {return seaux[i];}
+	/**
+	 * @param i une case rendue par trouver
+	 * @return le nombre d'entiers du seau de la case
+	 */
+	public int nbValeurs(int i) {return nbParSeau[i];}
+	/** Vide la grille */
+	public void clear() {allouer(64);}
+	/** @return la case de la clé, ou la case libre où la ranger */
+	protected int position(long cle) {
+		int masque = cles.length-1;
+		long h = cle*0x9E3779B97F4A7C15L;
+		int i = (int)(h^(h>>>32)) & masque;
+		while(cles[i]!=VIDE && cles[i]!=cle) i = (i+1)&masque;
+		return i;
+	}
+	/** @return la clé de la cellule (c,l) */
+	protected static long cle(int c, int l) {return ((long)c<<32) | (l&0xffffffffL);}
+	/** Alloue une table vide de n cases, n puissance de deux */
+	protected void allouer(int n) {
+		cles = new long[n];
+		Arrays.fill(cles, VIDE);
+		seaux = new int[n][];
+		nbParSeau = new int[n];
+		nbCases = 0;
+	}
+	/** Range les seaux dans une table de n cases, n puissance de deux */
+	protected void reallouer(int n) {
+		long[] anciennesCles = cles;
+		int[][] anciensSeaux = seaux;
+		int[] anciensNb = nbParSeau;
+		allouer(n);
+		for(int j=0; j<anciennesCles.length; j++) {
+			if(anciennesCles[j]==VIDE) continue;
+			int i = position(anciennesCles[j]);
+			cles[i]=anciennesCles[j];
+			seaux[i]=anciensSeaux[j];
+			nbParSeau[i]=anciensNb[j];
+			nbCases++;
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package jus.aoo.turtle;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogramme de durées, en nanosecondes, à précision relative constante : chaque
+ * puissance de deux est partagée en SOUS_CLASSES classes de même largeur, soit une erreur
+ * inférieure à 1/SOUS_CLASSES sur les quantiles, de la nanoseconde à MAXIMUM.
+ * L'enregistrement ne fait que des incréments atomiques, sans allocation ni verrou ;
+ * il peut être appelé de plusieurs threads.
+ * @version 1.0
+ * @see Mesures
+ */
+public class Histogramme {
+	protected static final int BITS = 5;                    // log2 du nombre de classes par puissance de deux
+	protected static final int SOUS_CLASSES = 1<<BITS;
+	protected static final int EXPOSANT_MAX = 40;           // les durées sont bornées à 2^40 ns, environ 18 minutes
+	public static final long MAXIMUM = (1L<<EXPOSANT_MAX)-1;
+	protected final String nom;
+	protected final AtomicLongArray classes = new AtomicLongArray(classe(MAXIMUM)+1);
+	protected final LongAdder total = new LongAdder();      // la somme des durées enregistrées
+	protected final AtomicLong max = new AtomicLong();
+	/**
+	 * Construction d'un histogramme vide
+	 * @param nom le nom de la mesure
+	 */
+	public Histogramme(String nom) {this.nom=nom;}
+	/** @return le nom de la mesure */
+	public String nom() {return nom;}
+	/**
+	 * Enregistre une durée
+	 * @param duree la durée en nanosecondes, ramenée à [0,MAXIMUM]
+	 */
+	public void enregistrer(long duree) {
+		duree = Math.max(0, Math.min(MAXIMUM, duree));
+		classes.incrementAndGet(classe(duree));
+		total.add(duree);
+		long m;
+		while(duree>(m=max.get()) && !max.compareAndSet(m,duree));
+	}
+	/** @return le nombre de durées enregistrées */
+	public long nombre() {
+		long n = 0;
+		for(int i=0; i<classes.length(); i++) n += classes.get(i);
+		return n;
+	}
+	/** @return la durée moyenne en nanosecondes, 0 si aucune durée n'est enregistrée */
+	public double moyenne() {
+		long n = nombre();
+		return n==0 ? 0 : (double)total.sum()/n;
+	}
+	/** @return la plus grande durée enregistrée, en nanosecondes */
+	public long max() {return max.get();}
+	/**
+	 * Restitue un quantile des durées enregistrées
+	 * @param q le rang du quantile, entre 0 et 1
+	 * @return la borne supérieure de la classe contenant le quantile, en nanosecondes, 0 si aucune durée n'est enregistrée
+	 */
+	public long quantile(double q) {
+		long[] copie = new long[classes.length()];
+		long n = 0;
+		for(int i=0; i<copie.length; i++) n += copie[i] = classes.get(i);
+		if(n==0) return 0;
+		long rang = Math.max(1, (long)Math.ceil(q*n)), cumul = 0;
+		for(int i=0; i<copie.length; i++) {
+			cumul += copie[i];
+			if(cumul>=rang) return Math.min(max.get(), borneSuperieure(i));
+		}
+		return max.get();
+	}
+	/** Oublie les durées enregistrées */
+	public void clear() {
+		for(int i=0; i<classes.length(); i++) classes.set(i,0);
+		total.reset();
+		max.set(0);
+	}
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		return String.format("%-12s n=%d moy=%.1fus p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus",
+				nom, nombre(), moyenne()/1e3, quantile(0.5)/1e3, quantile(0.99)/1e3, quantile(0.999)/1e3, max()/1e3);
+	}
+	/** @return la classe de la durée v : v elle-même en deçà de 2*SOUS_CLASSES, puis SOUS_CLASSES classes par puissance de deux */
+	protected static int classe(long v) {
+		if(v<SOUS_CLASSES) return (int)v;
+		int e = 63-Long.numberOfLeadingZeros(v);
+		return ((e-BITS)<<BITS)+(int)(v>>>(e-BITS));
+	}
+	/** @return la plus grande durée de la classe i */
+	protected static long borneSuperieure(int i) {
+		if(i<2*SOUS_CLASSES) return i;
+		int e = (i>>>BITS)+BITS-1;
+		long m = (i&(SOUS_CLASSES-1))+SOUS_CLASSES;
+		return ((m+1)<<(e-BITS))-1;
+	}
+}
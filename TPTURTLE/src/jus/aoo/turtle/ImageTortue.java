@@ -0,0 +1,44 @@
+package jus.aoo.turtle;
+
+import java.awt.Rectangle;
+import java.io.IOException;
+
+import jus.aoo.geometrie.Point;
+import jus.aoo.geometrie.TurtleImage;
+
+/**
+ * L'image matérialisant la tortue, repositionnable directement à partir de
+ * coordonnées sans passer par un Vecteur de translation.
+ * @version 1.0
+ * @see Turtle
+ */
+public class ImageTortue extends TurtleImage {
+	/**
+	 * Construction de l'image
+	 * @param p la position de l'image
+	 * @param imageFile le nom de la ressource image
+	 * @throws IOException si l'image ne peut être lue
+	 */
+	public ImageTortue(Point p, String imageFile) throws IOException {super(p,imageFile);}
+	/**
+	 * Place le centre de l'image en (x,y)
+	 * @param x l'abscisse
+	 * @param y l'ordonnée
+	 */
+	public void placer(double x, double y) {barycentre.positionnerCartesien(x,y);}
+	/**
+	 * Oriente l'image selon un argument absolu
+	 * @param a l'argument en radian
+	 */
+	public void orienter(double a) {angle = (a%(2*Math.PI)+2*Math.PI)%(2*Math.PI);}
+	/**
+	 * Restitue la zone couverte par l'image quelle que soit son orientation : le carré
+	 * circonscrit au cercle de rayon la demi-diagonale, cadre() ignorant la rotation
+	 * @return la zone, dans le repère de l'image
+	 */
+	public Rectangle zone() {
+		int r = (int)Math.ceil(Math.hypot(width,height)/2)+1;
+		int x = (int)Math.round(barycentre.abscisse()), y = (int)Math.round(barycentre.ordonnee());
+		return new Rectangle(x-r,y-r,2*r,2*r);
+	}
+}
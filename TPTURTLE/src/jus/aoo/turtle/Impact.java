@@ -0,0 +1,20 @@
+package jus.aoo.turtle;
+
+/**
+ * Résultat d'une recherche de collision entre un déplacement et les obstacles.
+ * Un même Impact est réutilisé d'une recherche à l'autre par son propriétaire.
+ * @version 1.0
+ * @see RegistreObstacles#impact(double, double, double, double, double, Impact)
+ */
+public class Impact {
+	/** la distance parcourue avant de toucher l'obstacle */
+	public double distance;
+	/** le numéro de l'obstacle touché dans le registre */
+	public int obstacle;
+	/** la normale sortante de la face touchée : -1, 0 ou 1 sur chaque axe, les deux non nuls pour un coin */
+	public int normaleX, normaleY;
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {return "Impact["+distance+","+obstacle+","+normaleX+","+normaleY+"]";}
+}
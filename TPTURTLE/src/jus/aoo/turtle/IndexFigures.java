@@ -0,0 +1,183 @@
+package jus.aoo.turtle;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+
+import jus.aoo.geometrie.Point;
+import jus.aoo.geometrie.TurtleImage;
+import jus.aoo.geometrie._Figure;
+
+/**
+ * Index des figures d'une liste de l'espace de dessin, pour la désignation à la souris
+ * et l'affichage partiel.
+ * Chaque figure est rangée, selon son cadre lors de l'ajout, dans les seaux d'une grille
+ * de cellules de côté TAILLE : une recherche ne teste que les figures des cellules proches
+ * du point ou du rectangle désigné. Les figures trop étendues, ainsi que les traces dont le
+ * cadre croît et l'image de la tortue qui se déplace, sont testées à chaque recherche. Les figures sont numérotées dans l'ordre
+ * d'ajout ; les résultats respectent l'ordre de la liste indexée.
+ * Une figure déplacée après son ajout doit être retirée puis ajoutée à nouveau.
+ * @version 1.0
+ * @see EspaceTortue
+ */
+public class IndexFigures {
+	protected static final int TAILLE = 64;        // le côté d'une cellule
+	protected static final int MAX_CELLULES = 256; // le nombre de cellules au-delà duquel une figure n'est pas rangée
+	protected static final int MARGE = 1;          // l'écart admis entre le point désigné et le cadre d'une figure
+	protected GrilleSeaux grille = new GrilleSeaux(TAILLE);
+	protected _Figure[] figures = new _Figure[16]; // les figures par numéro, null si elle est retirée
+	protected Rectangle[] cadres = new Rectangle[16]; // leur cadre lors de l'ajout, null pour une figure non rangée
+	protected int nbFigures;                       // le nombre de numéros attribués
+	protected int[] globales = new int[4];         // les numéros des figures non rangées
+	protected int nbGlobales;
+	protected IdentityHashMap<_Figure,Integer> numeros = new IdentityHashMap<_Figure,Integer>(); // le plus petit numéro de chaque figure
+	/**
+	 * Ajoute une figure à l'index, après toutes les autres
+	 * @param f la figure
+	 * @require argumentValide : f!=null
+	 */
+	public void ajouter(_Figure f) {
+		if(nbFigures==figures.length) {
+			figures = Arrays.copyOf(figures, 2*nbFigures);
+			cadres = Arrays.copyOf(cadres, 2*nbFigures);
+		}
+		int n = nbFigures++;
+		figures[n]=f;
+		if(!numeros.containsKey(f)) numeros.put(f,n);
+		Rectangle r = f instanceof FigureTrace || f instanceof TurtleImage ? null : f.cadre();
+		if(r!=null && (long)(grille.colonne(r.x+r.width)-grille.colonne(r.x)+1)*(grille.ligne(r.y+r.height)-grille.ligne(r.y)+1)<=MAX_CELLULES) {
+			cadres[n]=r;
+			for(int l=grille.ligne(r.y); l<=grille.ligne(r.y+r.height); l++)
+				for(int c=grille.colonne(r.x); c<=grille.colonne(r.x+r.width); c++) grille.ajouter(c,l,n);
+		}else{
+			if(nbGlobales==globales.length) globales = Arrays.copyOf(globales, 2*nbGlobales);
+			globales[nbGlobales++]=n;
+		}
+	}
+	/**
+	 * Retire de l'index la première occurrence d'une figure
+	 * @param f la figure
+	 * @return true si la figure était indexée
+	 */
+	public boolean retirer(_Figure f) {
+		Integer numero = numeros.remove(f);
+		if(numero==null) return false;
+		int n = numero;
+		figures[n]=null;
+		Rectangle r = cadres[n];
+		if(r!=null) {
+			cadres[n]=null;
+			for(int l=grille.ligne(r.y); l<=grille.ligne(r.y+r.height); l++)
+				for(int c=grille.colonne(r.x); c<=grille.colonne(r.x+r.width); c++) grille.retirer(c,l,n);
+		}else{
+			for(int k=0; k<nbGlobales; k++)
+				if(globales[k]==n) {
+					System.arraycopy(globales, k+1, globales, k, --nbGlobales-k);
+					break;
+				}
+		}
+		// une figure ajoutée plusieurs fois garde ses autres occurrences
+		for(int k=n+1; k<nbFigures; k++) if(figures[k]==f) {numeros.put(f,k); break;}
+		return true;
+	}
+	/** Vide l'index */
+	public void clear() {
+		grille.clear();
+		Arrays.fill(figures, 0, nbFigures, null);
+		Arrays.fill(cadres, 0, nbFigures, null);
+		nbFigures = nbGlobales = 0;
+		numeros.clear();
+	}
+	/**
+	 * Recherche la première figure contenant un point
+	 * @param p le point
+	 * @return la figure, null si aucune ne contient p
+	 * @see jus.aoo.geometrie.DrawingSpace#findFigure(java.awt.Point)
+	 */
+	public _Figure premiere(java.awt.Point p) {
+		Point q = new Point(p.getX(),p.getY());
+		for(int n : candidats(p.x-MARGE, p.y-MARGE, p.x+MARGE, p.y+MARGE))
+			if(figures[n].contains(q)) return figures[n];
+		return null;
+	}
+	/**
+	 * Recherche les figures contenant un point
+	 * @param p le point
+	 * @return les figures, dans l'ordre de la liste indexée
+	 * @see jus.aoo.geometrie.DrawingSpace#findFigures(java.awt.Point)
+	 */
+	public List<_Figure> contenant(java.awt.Point p) {
+		Point q = new Point(p.getX(),p.getY());
+		List<_Figure> res = new LinkedList<_Figure>();
+		for(int n : candidats(p.x-MARGE, p.y-MARGE, p.x+MARGE, p.y+MARGE))
+			if(figures[n].contains(q)) res.add(figures[n]);
+		return res;
+	}
+	/**
+	 * Recherche les figures dont le barycentre est dans un rectangle
+	 * @param r le rectangle
+	 * @return les figures, dans l'ordre de la liste indexée
+	 * @see jus.aoo.geometrie.DrawingSpace#selection(java.awt.Rectangle)
+	 */
+	public List<_Figure> selection(Rectangle r) {
+		List<_Figure> res = new LinkedList<_Figure>();
+		if(r.width<0 || r.height<0) return res;
+		// le barycentre d'une figure est dans son cadre, au arrondi près
+		for(int n : candidats(r.x-MARGE, r.y-MARGE, r.x+r.width+MARGE, r.y+r.height+MARGE)) {
+			Point b = figures[n].barycentre();
+			if(r.contains(new java.awt.Point((int)b.abscisse(),(int)b.ordonnee()))) res.add(figures[n]);
+		}
+		return res;
+	}
+	/**
+	 * Recherche les figures à dessiner pour afficher une zone : celles dont le cadre la
+	 * rencontre, et les figures non rangées
+	 * @param zone la zone
+	 * @return les figures, dans l'ordre de la liste indexée
+	 */
+	public List<_Figure> recouvrant(Rectangle zone) {
+		List<_Figure> res = new ArrayList<_Figure>();
+		for(int n : candidats(zone.x, zone.y, zone.x+zone.width, zone.y+zone.height)) res.add(figures[n]);
+		return res;
+	}
+	/**
+	 * Recherche les figures dont le cadre rencontre une zone, et les figures non rangées
+	 * @return leurs numéros, chacun une seule fois, par ordre croissant
+	 */
+	protected int[] candidats(int x0, int y0, int x1, int y1) {
+		int[] res = Arrays.copyOf(globales, Math.max(16,nbGlobales));
+		int nb = nbGlobales;
+		int c0 = grille.colonne(x0), c1 = grille.colonne(x1), l0 = grille.ligne(y0), l1 = grille.ligne(y1);
+		if((long)(c1-c0+1)*(l1-l0+1)>nbFigures) {
+			// la zone couvre plus de cellules qu'il n'y a de figures : toutes sont examinées
+			nb = 0;
+			res = new int[nbFigures];
+			for(int n=0; n<nbFigures; n++) {
+				Rectangle r = cadres[n];
+				if(figures[n]==null || r!=null && (r.x>x1 || r.x+r.width<x0 || r.y>y1 || r.y+r.height<y0)) continue;
+				res[nb++]=n;
+			}
+			return Arrays.copyOf(res, nb);
+		}
+		for(int l=l0; l<=l1; l++)
+			for(int c=c0; c<=c1; c++) {
+				int i = grille.trouver(c,l);
+				if(i<0) continue;
+				int[] seau = grille.valeurs(i);
+				for(int k=0; k<grille.nbValeurs(i); k++) {
+					int n = seau[k];
+					Rectangle r = cadres[n];
+					// une figure rangée dans plusieurs cellules n'est retenue que dans la première d'entre elles rencontrant la zone
+					if(Math.max(grille.colonne(r.x),c0)!=c || Math.max(grille.ligne(r.y),l0)!=l) continue;
+					if(r.x>x1 || r.x+r.width<x0 || r.y>y1 || r.y+r.height<y0) continue;
+					if(nb==res.length) res = Arrays.copyOf(res, 2*nb);
+					res[nb++]=n;
+				}
+			}
+		Arrays.sort(res, 0, nb);
+		return Arrays.copyOf(res, nb);
+	}
+}
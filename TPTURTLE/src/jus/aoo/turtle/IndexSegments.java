@@ -0,0 +1,89 @@
+package jus.aoo.turtle;
+
+/**
+ * Index des segments d'une trace compacte, pour la désignation à la souris.
+ * Chaque segment est rangé dans les seaux des cellules qu'il traverse (algorithme
+ * d'Amanatides et Woo) : la recherche d'un segment proche d'un point ne teste que les
+ * segments des cellules voisines du point. L'index est complété des segments ajoutés à
+ * la trace depuis la recherche précédente, et reconstruit si la trace en a oublié.
+ * @version 1.0
+ * @see FigureTrace
+ */
+public class IndexSegments {
+	protected static final double TAILLE = 16; // le côté d'une cellule, dans les unités de la trace
+	protected TraceCompacte trace;   // la trace indexée
+	protected GrilleSeaux grille = new GrilleSeaux(TAILLE);
+	protected int nbIndexes;         // le nombre de segments de la trace rangés dans la grille
+	protected int generation;        // la génération de la trace lors du rangement
+	/**
+	 * Construction d'un index vide
+	 * @param trace la trace indexée
+	 * @require argumentValide : trace!=null
+	 */
+	public IndexSegments(TraceCompacte trace) {
+		this.trace=trace;
+		generation=trace.generation();
+	}
+	/**
+	 * Indique si l'un des segments de la trace passe à une distance donnée d'un point
+	 * @param px l'abscisse du point
+	 * @param py l'ordonnée du point
+	 * @param distance la distance
+	 * @return true si un segment est à moins de distance de (px,py)
+	 * @require argumentValide : distance>=0
+	 */
+	public synchronized boolean proche(double px, double py, double distance) {
+		synchroniser();
+		// le point d'un segment le plus proche de p est dans une cellule rencontrant le carré de côté 2*distance centré en p
+		double marge = distance*(1+1e-9)+1e-9;
+		int c0 = grille.colonne(px-marge), c1 = grille.colonne(px+marge), l0 = grille.ligne(py-marge), l1 = grille.ligne(py+marge);
+		double d2 = distance*distance;
+		for(int l=l0; l<=l1; l++)
+			for(int c=c0; c<=c1; c++) {
+				int i = grille.trouver(c,l);
+				if(i<0) continue;
+				int[] seau = grille.valeurs(i);
+				for(int k=0; k<grille.nbValeurs(i); k++) {
+					int n = seau[k];
+					if(n>=nbIndexes) continue;
+					double x1 = trace.coordonnee(n,0), y1 = trace.coordonnee(n,1), x2 = trace.coordonnee(n,2), y2 = trace.coordonnee(n,3);
+					double dx = x2-x1, dy = y2-y1, l2 = dx*dx+dy*dy;
+					double t = l2==0 ? 0 : Math.max(0, Math.min(1, ((px-x1)*dx+(py-y1)*dy)/l2));
+					double ex = x1+t*dx-px, ey = y1+t*dy-py;
+					if(ex*ex+ey*ey<=d2) return true;
+				}
+			}
+		return false;
+	}
+	/** Range dans la grille les segments ajoutés à la trace, ou tous si elle en a oublié */
+	protected void synchroniser() {
+		int n = trace.nbSegments();
+		if(trace.generation()!=generation || n<nbIndexes) {
+			grille.clear();
+			nbIndexes = 0;
+			generation = trace.generation();
+		}
+		if(n==nbIndexes) return;
+		trace.parcourir(new _Traceur(){
+			public void trace(double x1, double y1, double x2, double y2) {inserer(nbIndexes++,x1,y1,x2,y2);}
+		}, nbIndexes, n);
+	}
+	/** Range le segment n dans les cellules qu'il traverse */
+	protected void inserer(int n, double x1, double y1, double x2, double y2) {
+		int c = grille.colonne(x1), l = grille.ligne(y1), cFin = grille.colonne(x2), lFin = grille.ligne(y2);
+		double dx = x2-x1, dy = y2-y1;
+		int pasC = dx>0 ? 1 : -1, pasL = dy>0 ? 1 : -1;
+		double tMaxC = dx>0 ? ((c+1.0)*TAILLE-x1)/dx : dx<0 ? (c*TAILLE-x1)/dx : Double.POSITIVE_INFINITY;
+		double tMaxL = dy>0 ? ((l+1.0)*TAILLE-y1)/dy : dy<0 ? (l*TAILLE-y1)/dy : Double.POSITIVE_INFINITY;
+		double deltaC = dx!=0 ? TAILLE/Math.abs(dx) : Double.POSITIVE_INFINITY;
+		double deltaL = dy!=0 ? TAILLE/Math.abs(dy) : Double.POSITIVE_INFINITY;
+		grille.ajouter(c,l,n);
+		// le nombre de pas est borné par celui des cellules séparant les extrémités, malgré les arrondis
+		for(int pas=Math.abs(cFin-c)+Math.abs(lFin-l); pas>0; pas--) {
+			if(tMaxC<tMaxL) {c+=pasC; tMaxC+=deltaC;}
+			else {l+=pasL; tMaxL+=deltaL;}
+			grille.ajouter(c,l,n);
+		}
+		if(c!=cFin || l!=lFin) grille.ajouter(cFin,lFin,n);
+	}
+}
@@ -0,0 +1,141 @@
+package jus.aoo.turtle;
+
+import java.util.Arrays;
+
+/**
+ * Journal des commandes d'une tortue, permettant d'annuler, de refaire et de revenir à
+ * une étape quelconque.
+ * Les commandes reçues par le journal sont enregistrées, pas exécutées : la tortue les
+ * lui transmet une fois exécutées. Elles sont conservées dans un {@link Programme} et,
+ * toutes les PERIODE étapes, l'état du moteur est relevé. Revenir en arrière à l'étape n
+ * restaure le relevé qui la précède puis rejoue moins de PERIODE commandes ; aller en
+ * avant rejoue les commandes intermédiaires, dont les segments doivent être retracés.
+ * Les segments tracés depuis le relevé restauré sont retirés par {@link #oublier(int)},
+ * que le support d'affichage redéfinit.
+ * Le rejeu suppose que les dimensions de la feuille, les obstacles et la réponse du moteur
+ * à un contact n'ont pas changé.
+ * @version 1.0
+ * @see Turtle#annuler()
+ */
+public class Journal implements _Tortue {
+	/** le nombre d'étapes entre deux relevés de l'état */
+	public static final int PERIODE = 256;
+	protected MoteurTortue moteur; // le moteur dont l'état est relevé et sur lequel les commandes sont rejouées
+	protected Programme commandes = new Programme(); // les commandes enregistrées
+	protected int pas;      // le nombre de commandes exécutées : l'étape courante
+	protected int operande; // le rang du premier opérande de la commande de rang pas
+	protected double[] etats = new double[MoteurTortue.TAILLE_ETAT*16]; // l'état du moteur à chaque relevé
+	protected int[] operandes = new int[16]; // le rang du premier opérande suivant chaque relevé
+	/**
+	 * Construction d'un journal, dont l'étape 0 est l'état courant du moteur
+	 * @param moteur le moteur
+	 * @require argumentValide : moteur!=null
+	 */
+	public Journal(MoteurTortue moteur) {
+		this.moteur=moteur;
+		relever();
+	}
+	/** @see jus.aoo.turtle._Tortue#avancer(double) */
+	public void avancer(double d) {oublierSuite(); commandes.avancer(d); operande+=1; suivant();}
+	/** @see jus.aoo.turtle._Tortue#reculer(double) */
+	public void reculer(double d) {oublierSuite(); commandes.reculer(d); operande+=1; suivant();}
+	/** @see jus.aoo.turtle._Tortue#droite(double) */
+	public void droite(double a) {oublierSuite(); commandes.droite(a); operande+=1; suivant();}
+	/** @see jus.aoo.turtle._Tortue#gauche(double) */
+	public void gauche(double a) {oublierSuite(); commandes.gauche(a); operande+=1; suivant();}
+	/** @see jus.aoo.turtle._Tortue#lever() */
+	public void lever() {oublierSuite(); commandes.lever(); suivant();}
+	/** @see jus.aoo.turtle._Tortue#baisser() */
+	public void baisser() {oublierSuite(); commandes.baisser(); suivant();}
+	/** @see jus.aoo.turtle._Tortue#allerA(double, double) */
+	public void allerA(double dx, double dy) {oublierSuite(); commandes.allerA(dx,dy); operande+=2; suivant();}
+	/** @return l'étape courante, c'est-à-dire le nombre de commandes exécutées */
+	public int pas() {return pas;}
+	/** @return le nombre de commandes enregistrées, annulées comprises */
+	public int taille() {return commandes.taille();}
+	/**
+	 * Ramène le moteur à l'état qui suivait la commande de rang n-1
+	 * @param n l'étape visée
+	 * @require argumentValide : 0<=n && n<=taille()
+	 */
+	public void allerAuPas(int n) {
+		if(n<pas) restaurer(n);
+		operande = commandes.executer(moteur,pas,n,operande);
+		pas = n;
+	}
+	/**
+	 * Rétablit l'état de l'étape courante, après une commande interrompue qui n'a pas été
+	 * enregistrée mais a pu modifier le moteur ou tracer : le relevé précédent est restauré,
+	 * les segments tracés depuis oubliés, puis les commandes suivantes rejouées
+	 */
+	public void retablir() {
+		int n = pas;
+		restaurer(n);
+		operande = commandes.executer(moteur,pas,n,operande);
+		pas = n;
+	}
+	/**
+	 * Restaure le relevé précédant l'étape n ou y tombant, les segments tracés depuis étant oubliés
+	 * @param n l'étape visée
+	 */
+	protected void restaurer(int n) {
+		int r = n/PERIODE;
+		int e = MoteurTortue.TAILLE_ETAT*r;
+		oublier(moteur.nbSegments()-(int)etats[e+MoteurTortue.TAILLE_ETAT-1]);
+		moteur.restaurer(etats,e);
+		pas = r*PERIODE;
+		operande = operandes[r];
+	}
+	/**
+	 * Annule la dernière commande exécutée
+	 * @return false s'il n'y a rien à annuler
+	 */
+	public boolean annuler() {
+		if(pas==0) return false;
+		allerAuPas(pas-1);
+		return true;
+	}
+	/**
+	 * Refait la dernière commande annulée
+	 * @return false s'il n'y a rien à refaire
+	 */
+	public boolean refaire() {
+		if(pas==taille()) return false;
+		allerAuPas(pas+1);
+		return true;
+	}
+	/** Oublie toutes les commandes ; l'état courant du moteur devient l'étape 0 */
+	public void clear() {
+		commandes.clear();
+		pas = operande = 0;
+		relever();
+	}
+	/**
+	 * Retire les derniers segments tracés, qu'un retour en arrière efface ;
+	 * sans effet ici, le support d'affichage la redéfinit.
+	 * @param nb le nombre de segments à retirer
+	 */
+	protected void oublier(int nb) {}
+	/**
+	 * Oublie les commandes annulées, avant l'enregistrement d'une nouvelle commande ;
+	 * les relevés au-delà de l'étape courante seront remplacés à mesure qu'elle avance
+	 */
+	protected void oublierSuite() {
+		if(pas<taille()) commandes.tronquer(pas,operande);
+	}
+	/** Passe à l'étape suivante, en relevant l'état si elle tombe sur une période */
+	protected void suivant() {
+		pas++;
+		if(pas%PERIODE==0) relever();
+	}
+	/** Relève l'état du moteur à l'étape courante, qui est un multiple de PERIODE */
+	protected void relever() {
+		int r = pas/PERIODE;
+		if(r==operandes.length) {
+			operandes = Arrays.copyOf(operandes, 2*r);
+			etats = Arrays.copyOf(etats, 2*etats.length);
+		}
+		moteur.sauver(etats,MoteurTortue.TAILLE_ETAT*r);
+		operandes[r] = operande;
+	}
+}
@@ -0,0 +1,208 @@
+package jus.aoo.turtle;
+
+import java.util.Arrays;
+
+import jus.util.assertion.Require;
+
+/**
+ * Un L-système : un axiome et des règles de réécriture de symboles, dont le développement
+ * à une profondeur donnée est tracé par une tortue. Les symboles interprétés sont :
+ * <UL>
+ *   <LI>F et G : avancer d'un pas, plume baissée ;</LI>
+ *   <LI>f : avancer d'un pas, plume levée ;</LI>
+ *   <LI>+ et - : tourner à gauche et à droite de l'angle ;</LI>
+ *   <LI>| : faire demi-tour ;</LI>
+ *   <LI>[ et ] : mémoriser la position et le cap de la tortue, puis y revenir.</LI>
+ * </UL>
+ * Les autres symboles ne servent qu'à la réécriture.
+ * Le développement n'est jamais construit : une pile d'itérateurs, un par niveau de
+ * réécriture, produit les symboles au fur et à mesure du tracé, si bien que la mémoire
+ * occupée est proportionnelle à la profondeur et non à la longueur du développement.
+ * Les pas consécutifs sont transmis en un seul avancer.
+ * La tortue n'étant pas interrogée, position et cap sont suivis à partir des commandes
+ * transmises, depuis le cap initial de la tortue : le retour à un état mémorisé suppose que
+ * ce cap est exact et que la tortue n'a été arrêtée ni par un bord ni par un obstacle depuis.
+ * Le cap initial est lu sur une Turtle ou un MoteurTortue ; pour une autre tortue, il doit
+ * être fourni (voir executer(_Tortue, int, double)).
+ * @version 1.0
+ * @see _Tortue
+ */
+public class LSysteme {
+	protected String axiome;        // le développement de profondeur 0
+	protected String[] regles = new String[128]; // le remplacement de chaque symbole, null s'il est inchangé
+	protected double pas;           // la longueur d'un pas
+	protected double angle;         // l'angle des rotations, en degré
+	// l'état suivi de la tortue pendant un tracé
+	protected _Tortue tortue;
+	protected double x, y, cap;     // la position et le cap, en degré, déduits des commandes
+	protected double attente;       // la distance des pas non encore transmis
+	protected boolean leveAttente;  // la plume des pas en attente est levée
+	protected double[] etats = new double[3*16]; // les triplets (x,y,cap) mémorisés par [
+	protected int nbEtats;
+	/**
+	 * Construction d'un L-système sans règle
+	 * @param axiome le développement de profondeur 0
+	 * @param pas la longueur d'un pas
+	 * @param angle l'angle des rotations, en degré
+	 * @require argumentValide : axiome!=null && pas>=0
+	 * @require symbolesValides : symboles ASCII
+	 */
+	public LSysteme(String axiome, double pas, double angle) {
+		if(axiome==null || pas<0) throw new Require("argumentValide");
+		verifier(axiome);
+		this.axiome=axiome;
+		this.pas=pas;
+		this.angle=angle;
+	}
+	/**
+	 * Fixe la règle de réécriture d'un symbole
+	 * @param symbole le symbole réécrit
+	 * @param remplacement son remplacement, null pour qu'il soit inchangé
+	 * @return ce L-système
+	 * @require symbolesValides : symboles ASCII
+	 */
+	public LSysteme regle(char symbole, String remplacement) {
+		if(symbole>=regles.length) throw new Require("symbolesValides");
+		if(remplacement!=null) verifier(remplacement);
+		regles[symbole]=remplacement;
+		return this;
+	}
+	/**
+	 * Trace le développement d'une profondeur donnée, depuis le cap courant d'une Turtle ou
+	 * d'un MoteurTortue, et depuis le cap 0 pour toute autre tortue.
+	 * La plume est baissée au début et à la fin.
+	 * @param t la tortue
+	 * @param profondeur le nombre de réécritures
+	 * @require argumentValide : t!=null && profondeur>=0
+	 * @require capNul : t est une Turtle ou un MoteurTortue, ou son cap est 0
+	 */
+	public void executer(_Tortue t, int profondeur) {
+		MoteurTortue m = t instanceof Turtle ? ((Turtle)t).moteur() : t instanceof MoteurTortue ? (MoteurTortue)t : null;
+		double capInitial = m==null ? 0 : m.degres()>=0 ? m.degres() : Math.toDegrees(m.angle());
+		executer(t,profondeur,capInitial);
+	}
+	/**
+	 * Trace le développement d'une profondeur donnée. La plume est baissée au début et à la fin.
+	 * @param t la tortue
+	 * @param profondeur le nombre de réécritures
+	 * @param capInitial le cap de la tortue au départ, en degré
+	 * @require argumentValide : t!=null && profondeur>=0
+	 */
+	public void executer(_Tortue t, int profondeur, double capInitial) {
+		if(t==null || profondeur<0) throw new Require("argumentValide");
+		tortue = t;
+		x = y = attente = 0;
+		cap = capInitial%360;
+		nbEtats = 0;
+		t.baisser();
+		// la pile des itérateurs : la chaîne de chaque niveau et la position du prochain symbole
+		String[] chaines = new String[profondeur+1];
+		int[] positions = new int[profondeur+1];
+		int niveau = 0;
+		chaines[0] = axiome;
+		try{
+			while(niveau>=0) {
+				if(positions[niveau]==chaines[niveau].length()) {niveau--; continue;}
+				char s = chaines[niveau].charAt(positions[niveau]++);
+				String r = niveau<profondeur ? regles[s] : null;
+				if(r!=null) {
+					niveau++;
+					chaines[niveau] = r;
+					positions[niveau] = 0;
+				}else interpreter(s);
+			}
+			avancer();
+		}finally{
+			tortue = null;
+		}
+	}
+	/**
+	 * Restitue la longueur du développement d'une profondeur donnée, sans le construire
+	 * @param profondeur le nombre de réécritures
+	 * @return le nombre de symboles, Long.MAX_VALUE s'il le dépasse
+	 * @require argumentValide : profondeur>=0
+	 */
+	public long longueur(int profondeur) {
+		if(profondeur<0) throw new Require("argumentValide");
+		// longueurs[s] : la longueur du développement du symbole s à la profondeur courante
+		long[] longueurs = new long[regles.length], suivantes = new long[regles.length];
+		Arrays.fill(longueurs, 1);
+		for(int p=0; p<profondeur; p++) {
+			for(int s=0; s<regles.length; s++) suivantes[s] = regles[s]==null ? 1 : somme(regles[s],longueurs);
+			long[] l = longueurs; longueurs = suivantes; suivantes = l;
+		}
+		return somme(axiome,longueurs);
+	}
+	/** Interprète un symbole du développement */
+	protected void interpreter(char s) {
+		switch(s) {
+			case 'F' :
+			case 'G' : pas(false); break;
+			case 'f' : pas(true); break;
+			case '+' : tourner(angle); break;
+			case '-' : tourner(-angle); break;
+			case '|' : tourner(180); break;
+			case '[' :
+				if(3*nbEtats==etats.length) etats = Arrays.copyOf(etats, 2*etats.length);
+				etats[3*nbEtats] = x+attenteX(); etats[3*nbEtats+1] = y+attenteY(); etats[3*nbEtats+2] = cap;
+				nbEtats++;
+				break;
+			case ']' :
+				if(nbEtats==0) break;
+				avancer();
+				nbEtats--;
+				double ex = etats[3*nbEtats], ey = etats[3*nbEtats+1], ecap = etats[3*nbEtats+2];
+				if(ex!=x || ey!=y) {
+					tortue.lever();
+					tortue.allerA(ex-x, ey-y);
+					tortue.baisser();
+					x=ex; y=ey;
+				}
+				if(ecap!=cap) tourner(ecap-cap);
+				break;
+			default :
+		}
+	}
+	/**
+	 * Transmet les pas en attente puis fait tourner la tortue
+	 * @param a l'angle de rotation en degré, vers la gauche s'il est positif
+	 */
+	protected void tourner(double a) {
+		avancer();
+		if(a>=0) tortue.gauche(a); else tortue.droite(-a);
+		// le cap suivi reste dans ]-360,360[ : son cosinus et son sinus ne perdent pas en précision
+		cap = (cap+a)%360;
+	}
+	/** Ajoute un pas à ceux en attente, qui sont transmis si la plume change */
+	protected void pas(boolean leve) {
+		if(attente>0 && leve!=leveAttente) avancer();
+		leveAttente = leve;
+		attente += pas;
+	}
+	/** Transmet à la tortue les pas en attente */
+	protected void avancer() {
+		if(attente==0) return;
+		if(leveAttente) tortue.lever();
+		tortue.avancer(attente);
+		if(leveAttente) tortue.baisser();
+		x += attenteX(); y += attenteY();
+		attente = 0;
+	}
+	/** @return le déplacement en abscisse des pas en attente */
+	protected double attenteX() {return attente==0 ? 0 : attente*Math.cos(Math.toRadians(cap));}
+	/** @return le déplacement en ordonnée des pas en attente */
+	protected double attenteY() {return attente==0 ? 0 : attente*Math.sin(Math.toRadians(cap));}
+	/** @return la somme des longueurs des symboles de s, bornée à Long.MAX_VALUE */
+	protected static long somme(String s, long[] longueurs) {
+		long n = 0;
+		for(int i=0; i<s.length(); i++) {
+			n += longueurs[s.charAt(i)];
+			if(n<0) return Long.MAX_VALUE;
+		}
+		return n;
+	}
+	/** Vérifie que les symboles d'une chaîne sont ASCII */
+	protected void verifier(String s) {
+		for(int i=0; i<s.length(); i++) if(s.charAt(i)>=regles.length) throw new Require("symbolesValides");
+	}
+}
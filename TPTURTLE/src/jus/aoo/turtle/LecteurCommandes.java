@@ -0,0 +1,131 @@
+package jus.aoo.turtle;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static jus.aoo.turtle.EcrivainCommandes.*;
+
+/**
+ * Relit un fichier de commandes écrit par {@link EcrivainCommandes} et les rejoue sur une tortue.
+ * Le fichier est projeté en mémoire par fenêtres de TAILLE_FENETRE octets au plus : les
+ * opérandes sont lus directement dans les pages projetées, sans copie ni objet intermédiaire,
+ * et le fichier peut dépasser 2 Go. L'index permet de commencer le rejeu à un rang quelconque
+ * en ne décodant que moins de PAS_INDEX commandes.
+ * @version 1.0
+ */
+public class LecteurCommandes implements Closeable {
+	/** la taille maximale d'une fenêtre de projection, en octets */
+	public static final long TAILLE_FENETRE = 1L<<30;
+	protected FileChannel canal;      // le fichier lu
+	protected long fin;               // la position de la fin des commandes
+	protected long nbCommandes;       // le nombre de commandes
+	protected long[] index;           // la position des commandes de rang multiple de PAS_INDEX
+	protected MappedByteBuffer fenetre; // la fenêtre projetée courante
+	protected long debutFenetre, finFenetre; // les positions couvertes par la fenêtre
+	/**
+	 * Ouverture d'un fichier de commandes
+	 * @param fichier le fichier
+	 * @throws IOException si le fichier ne peut être lu ou n'est pas un fichier de commandes complet
+	 */
+	public LecteurCommandes(Path fichier) throws IOException {
+		canal = FileChannel.open(fichier,StandardOpenOption.READ);
+		long taille = canal.size();
+		if(taille<EN_TETE+16) throw new IOException("fichier de commandes tronqué : "+fichier);
+		projeter(0);
+		if(fenetre.getInt(0)!=MAGIQUE) throw new IOException("pas un fichier de commandes : "+fichier);
+		if(fenetre.getInt(4)!=VERSION) throw new IOException("version de fichier de commandes inconnue : "+fenetre.getInt(4));
+		projeter(taille-16);
+		int i = (int)(taille-16-debutFenetre);
+		if(fenetre.getInt(i+12)!=MAGIQUE_INDEX) throw new IOException("index absent, fichier non fermé : "+fichier);
+		nbCommandes = fenetre.getLong(i);
+		index = new long[fenetre.getInt(i+8)];
+		fin = taille-16-8L*index.length;
+		projeter(fin);
+		for(int k=0; k<index.length; k++) index[k] = fenetre.getLong((int)(fin-debutFenetre)+8*k);
+	}
+	/** @return le nombre de commandes du fichier */
+	public long nbCommandes() {return nbCommandes;}
+	/**
+	 * Rejoue toutes les commandes sur une tortue
+	 * @param t la tortue
+	 */
+	public void executer(_Tortue t) {executer(t,0,nbCommandes);}
+	/**
+	 * Rejoue sur une tortue les commandes de rang compris entre debut inclus et fin exclue
+	 * @param t la tortue
+	 * @param debut le rang de la première commande rejouée
+	 * @param fin le rang suivant celui de la dernière commande rejouée
+	 * @require argumentValide : t!=null && 0<=debut && debut<=fin && fin<=nbCommandes()
+	 */
+	public void executer(_Tortue t, long debut, long fin) {
+		if(debut>=fin) return;
+		long rang = debut/PAS_INDEX*PAS_INDEX;
+		long p = index[(int)(debut/PAS_INDEX)];
+		projeter(p);
+		// les commandes précédant debut depuis l'entrée de l'index sont sautées
+		for(; rang<debut; rang++) p += 1+taille(octet(p));
+		for(; rang<fin; rang++) {
+			if(p+17>finFenetre) projeter(p);
+			int i = (int)(p-debutFenetre);
+			byte code = fenetre.get(i);
+			switch(code) {
+				case Programme.AVANCER : t.avancer(fenetre.getDouble(i+1)); p+=9; break;
+				case Programme.RECULER : t.reculer(fenetre.getDouble(i+1)); p+=9; break;
+				case Programme.DROITE  : t.droite(fenetre.getDouble(i+1)); p+=9; break;
+				case Programme.GAUCHE  : t.gauche(fenetre.getDouble(i+1)); p+=9; break;
+				case Programme.LEVER   : t.lever(); p+=1; break;
+				case Programme.BAISSER : t.baisser(); p+=1; break;
+				case Programme.ALLER_A : t.allerA(fenetre.getDouble(i+1),fenetre.getDouble(i+9)); p+=17; break;
+				default : throw new IllegalStateException("code de commande inconnu "+code+" en "+p);
+			}
+		}
+	}
+	/**
+	 * Ferme le fichier
+	 * @throws IOException si la fermeture échoue
+	 */
+	public void close() throws IOException {
+		fenetre = null;
+		canal.close();
+	}
+	/**
+	 * Restitue l'octet en position p du fichier
+	 * @param p la position
+	 * @return l'octet
+	 */
+	protected byte octet(long p) {
+		if(p>=finFenetre) projeter(p);
+		return fenetre.get((int)(p-debutFenetre));
+	}
+	/**
+	 * @param code un code d'opération
+	 * @return la taille de ses opérandes, en octets
+	 */
+	protected static int taille(byte code) {
+		switch(code) {
+			case Programme.LEVER :
+			case Programme.BAISSER : return 0;
+			case Programme.ALLER_A : return 16;
+			default : return 8;
+		}
+	}
+	/**
+	 * Projette la fenêtre commençant en position p
+	 * @param p la position
+	 */
+	protected void projeter(long p) {
+		try{
+			debutFenetre = p;
+			finFenetre = Math.min(canal.size(), p+TAILLE_FENETRE);
+			fenetre = canal.map(FileChannel.MapMode.READ_ONLY, debutFenetre, finFenetre-debutFenetre);
+			fenetre.order(ByteOrder.LITTLE_ENDIAN);
+		}catch(IOException e){
+			throw new java.io.UncheckedIOException(e);
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package jus.aoo.turtle;
+
+/**
+ * Comportement de marche aléatoire : à chaque étape la tortue tourne d'un angle tiré
+ * au hasard puis avance d'un pas ; elle fait demi-tour avant de sortir de la feuille.
+ * Le tirage est une fonction de la graine, du numéro de la tortue et de l'étape :
+ * la marche est reproductible.
+ * @version 1.0
+ * @see Troupeau
+ */
+public class MarcheurAleatoire implements _Comportement {
+	protected double pas;      // la longueur d'un pas
+	protected double angleMax; // l'amplitude maximale d'une rotation, en degré
+	protected long graine;     // la graine des tirages
+	/**
+	 * Construction du comportement
+	 * @param pas la longueur d'un pas
+	 * @param angleMax l'amplitude maximale d'une rotation, en degré
+	 * @param graine la graine des tirages
+	 * @require argumentValide : pas>=0 && angleMax>=0
+	 */
+	public MarcheurAleatoire(double pas, double angleMax, long graine) {
+		this.pas=pas;
+		this.angleMax=angleMax;
+		this.graine=graine;
+	}
+	/* (non-Javadoc)
+	 * @see jus.aoo.turtle._Comportement#agir(jus.aoo.turtle.MoteurTortue, int, long)
+	 */
+	public void agir(MoteurTortue t, int numero, long etape) {
+		long h = melanger(graine ^ melanger(numero*0x9E3779B97F4A7C15L ^ etape));
+		// 53 bits de poids fort ramenés dans [0,1[
+		double u = (h>>>11)*0x1.0p-53;
+		t.gauche((2*u-1)*angleMax);
+		if(!t.destinationVisible(pas,t.capX,t.capY)) t.gauche(180);
+		t.avancer(pas);
+	}
+	/** Fonction de mélange de SplitMix64 */
+	protected static long melanger(long z) {
+		z = (z ^ (z>>>30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z>>>27)) * 0x94D049BB133111EBL;
+		return z ^ (z>>>31);
+	}
+}
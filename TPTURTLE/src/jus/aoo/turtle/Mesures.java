@@ -0,0 +1,108 @@
+package jus.aoo.turtle;
+
+import java.lang.management.ManagementFactory;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Les mesures des chemins critiques de la tortue : durée des opérations de Turtle et de
+ * l'affichage, nombre de segments tracés, de découpages au bord, de collisions,
+ * de violations d'invariant et de demandes de réaffichage.
+ * Les mesures sont actives si la propriété système jus.aoo.turtle.mesures vaut true au
+ * démarrage. ACTIVES étant une constante, les points de mesure sont éliminés à la compilation
+ * juste-à-temps lorsqu'elles ne le sont pas. Actives, elles sont publiées par JMX sous le nom NOM
+ * et, si la propriété jus.aoo.turtle.mesures.periode donne une période en secondes, relevées
+ * périodiquement sur la sortie d'erreur.
+ * @version 1.0
+ * @see Histogramme
+ * @see MesuresMBean
+ */
+public class Mesures implements MesuresMBean {
+	public static final boolean ACTIVES = Boolean.getBoolean("jus.aoo.turtle.mesures");
+	public static final String NOM = "jus.aoo.turtle:type=Mesures";
+	// les durées des opérations
+	public static final Histogramme AVANCER = new Histogramme("avancer");
+	public static final Histogramme RECULER = new Histogramme("reculer");
+	public static final Histogramme ALLER_A = new Histogramme("allerA");
+	public static final Histogramme TRAJET = new Histogramme("trajet");
+	public static final Histogramme TOURNER = new Histogramme("tourner");
+	public static final Histogramme SUIVRE = new Histogramme("suivre");
+	public static final Histogramme FLUSH = new Histogramme("flush");
+	public static final Histogramme DESSIN = new Histogramme("dessin");
+	protected static final Histogramme[] OPERATIONS = {AVANCER,RECULER,ALLER_A,TRAJET,TOURNER,SUIVRE,FLUSH,DESSIN};
+	// les événements
+	public static final LongAdder SEGMENTS = new LongAdder();
+	public static final LongAdder DECOUPAGES = new LongAdder();
+	public static final LongAdder COLLISIONS = new LongAdder();
+	public static final LongAdder INVARIANTS = new LongAdder();
+	public static final LongAdder REAFFICHAGES = new LongAdder();
+	static {
+		if(ACTIVES) {
+			try{
+				ManagementFactory.getPlatformMBeanServer().registerMBean(new Mesures(), new ObjectName(NOM));
+			}catch(JMException e){
+				e.printStackTrace();
+			}
+			long periode = Long.getLong("jus.aoo.turtle.mesures.periode",0);
+			if(periode>0) new Timer("Mesures",true).schedule(new TimerTask(){
+				public void run() {System.err.print(rapport());}
+			}, 1000*periode, 1000*periode);
+		}
+	}
+	/**
+	 * Restitue le relevé de toutes les mesures
+	 * @return une ligne par mesure
+	 */
+	public static String rapport() {
+		StringBuilder s = new StringBuilder();
+		for(Histogramme h : OPERATIONS) s.append(h).append('\n');
+		s.append("segments=").append(SEGMENTS.sum())
+			.append(" decoupages=").append(DECOUPAGES.sum())
+			.append(" collisions=").append(COLLISIONS.sum())
+			.append(" invariants=").append(INVARIANTS.sum())
+			.append(" reaffichages=").append(REAFFICHAGES.sum()).append('\n');
+		return s.toString();
+	}
+	/** Remet toutes les mesures à zéro */
+	public static void remettreAZero() {
+		for(Histogramme h : OPERATIONS) h.clear();
+		SEGMENTS.reset();
+		DECOUPAGES.reset();
+		COLLISIONS.reset();
+		INVARIANTS.reset();
+		REAFFICHAGES.reset();
+	}
+	/**
+	 * Restitue l'histogramme d'une opération
+	 * @param operation le nom de l'opération
+	 * @return l'histogramme, null si l'opération n'est pas mesurée
+	 */
+	public static Histogramme operation(String operation) {
+		for(Histogramme h : OPERATIONS) if(h.nom().equals(operation)) return h;
+		return null;
+	}
+	public long getSegments() {return SEGMENTS.sum();}
+	public long getDecoupages() {return DECOUPAGES.sum();}
+	public long getCollisions() {return COLLISIONS.sum();}
+	public long getInvariants() {return INVARIANTS.sum();}
+	public long getReaffichages() {return REAFFICHAGES.sum();}
+	public String[] getOperations() {
+		String[] noms = new String[OPERATIONS.length];
+		for(int i=0; i<noms.length; i++) noms[i] = OPERATIONS[i].nom();
+		return noms;
+	}
+	public long nombre(String operation) {
+		Histogramme h = operation(operation);
+		return h==null ? 0 : h.nombre();
+	}
+	public double quantile(String operation, double q) {
+		Histogramme h = operation(operation);
+		return h==null ? 0 : h.quantile(q)/1e3;
+	}
+	public String getRapport() {return rapport();}
+	public void clear() {remettreAZero();}
+}
@@ -0,0 +1,37 @@
+package jus.aoo.turtle;
+
+/**
+ * L'interface JMX des mesures de la tortue, enregistrée sous le nom Mesures.NOM
+ * lorsque les mesures sont actives.
+ * @version 1.0
+ * @see Mesures
+ */
+public interface MesuresMBean {
+	/** @return le nombre de segments tracés */
+	long getSegments();
+	/** @return le nombre de déplacements raccourcis au bord de la feuille */
+	long getDecoupages();
+	/** @return le nombre de déplacements arrêtés par un obstacle */
+	long getCollisions();
+	/** @return le nombre de violations de l'invariant de visibilité */
+	long getInvariants();
+	/** @return le nombre de demandes de réaffichage d'un espace de tortue */
+	long getReaffichages();
+	/** @return les noms des opérations mesurées */
+	String[] getOperations();
+	/**
+	 * @param operation le nom d'une opération
+	 * @return le nombre d'exécutions mesurées de l'opération
+	 */
+	long nombre(String operation);
+	/**
+	 * @param operation le nom d'une opération
+	 * @param q le rang du quantile, entre 0 et 1
+	 * @return le quantile des durées de l'opération, en microsecondes
+	 */
+	double quantile(String operation, double q);
+	/** @return le relevé de toutes les mesures, une ligne par mesure */
+	String getRapport();
+	/** Remet toutes les mesures à zéro */
+	void clear();
+}
@@ -0,0 +1,413 @@
+package jus.aoo.turtle;
+
+import jus.aoo.geometrie.Point;
+import jus.aoo.geometrie.Vecteur;
+import jus.util.assertion.Invariant;
+import jus.util.assertion.Require;
+
+/**
+ * Moteur d'exécution d'une tortue du modèle Logo, sans support d'affichage.
+ * Il reprend la sémantique de {@link Turtle} (état de la plume, découpage des
+ * déplacements sur les bords de la feuille) et transmet les segments tracés à un
+ * {@link _Traceur} : aucune dépendance vers AWT ou Swing.
+ * La feuille est un rectangle centré sur l'origine.
+ * La position et le cap sont conservés sous forme de réels : déplacements et rotations
+ * n'allouent aucun objet, les Point et Vecteur n'étant construits qu'à la demande.
+ * Tant que le cap fait un nombre entier de degrés, il est conservé sous forme d'indice
+ * dans la {@link TableDegres} : les rotations d'angle entier se font sans calcul
+ * trigonométrique et sans dérive, quel que soit leur nombre.
+ * Une rotation d'angle non entier fait quitter la table sans retour : le cap n'étant plus
+ * un nombre entier de degrés, les rotations suivantes, même entières, sont calculées
+ * (degres() vaut -1), jusqu'à la restauration d'un état relevé avec un cap entier.
+ * Si un registre d'obstacles lui est associé, chaque déplacement de avancer et reculer est
+ * confronté aux cadres des obstacles qu'il traverse. Au contact d'un obstacle ou du bord de
+ * la feuille, la tortue s'arrête, glisse le long de la face touchée ou y rebondit selon la
+ * réponse choisie (voir setReponse) : le déplacement est raccourci ou dévié, jamais annulé.
+ * @version 1.0
+ * @invariant Cohérent : Math.abs(cap().module()-1) < Vecteur.EPSILON
+ * @invariant visible : visible()
+ * @see Turtle
+ */
+public class MoteurTortue implements _Tortue {
+	/** le nombre de réels décrivant l'état du moteur, voir {@link #sauver(double[], int)} */
+	public static final int TAILLE_ETAT = 6;
+	/** réponse à un contact : la tortue s'arrête sur la face touchée */
+	public static final int ARRET = 0;
+	/** réponse à un contact : la tortue poursuit le long de la face touchée, de la composante parallèle du reste du déplacement */
+	public static final int GLISSEMENT = 1;
+	/** réponse à un contact : la tortue repart symétriquement par rapport à la face touchée pour le reste du déplacement, son cap étant réfléchi */
+	public static final int REBOND = 2;
+	/** le nombre maximal de contacts traités au cours d'un déplacement, au-delà duquel la tortue s'arrête */
+	protected static final int MAX_CONTACTS = 16;
+	protected _Traceur traceur; // la destination des segments tracés
+	protected int largeur, hauteur; // les dimensions de la feuille
+	protected boolean estLeve;  // état de la plume
+	protected int nbSegments;   // le nombre de segments transmis au traceur
+	protected Decoupage decoupage; // le découpage des déplacements par la feuille
+	protected double x, y;      // la position courante de la tortue
+	protected double angle;     // l'argument du cap, en radian
+	protected double capX, capY; // le cap courant, vecteur unitaire (cos(angle),sin(angle))
+	protected int degres;       // l'argument du cap en degré, dans [0,360[, ou -1 s'il n'est pas entier
+	protected RegistreObstacles obstacles; // les obstacles arrêtant la tortue, éventuellement null
+	protected final Impact impact = new Impact(); // le résultat de la dernière recherche de collision
+	protected int reponse = ARRET; // la réponse à un contact avec un obstacle ou le bord
+	protected double parcouru;     // la distance parcourue lors du dernier déplacement
+	/**
+	 * le constructeur du moteur
+	 * @param traceur la destination des segments tracés
+	 * @param largeur la largeur de la feuille
+	 * @param hauteur la hauteur de la feuille
+	 * @require argumentValide : traceur!=null && largeur>=0 && hauteur>=0
+	 */
+	public MoteurTortue(_Traceur traceur, int largeur, int hauteur) {
+		this.traceur=traceur;
+		orienterDegres(0);
+		estLeve=true;
+		dimensions(largeur,hauteur);
+	}
+	/**
+	 * Fixe les dimensions de la feuille
+	 * @param largeur la largeur de la feuille
+	 * @param hauteur la hauteur de la feuille
+	 */
+	public void dimensions(int largeur, int hauteur) {
+		if(decoupage!=null && largeur==this.largeur && hauteur==this.hauteur) return;
+		this.largeur=largeur;
+		this.hauteur=hauteur;
+		decoupage = new Decoupage(-largeur/2,-hauteur/2,largeur/2,hauteur/2);
+	}
+	/**
+	 * Restitue le découpage des déplacements par la feuille, pour le découpage par lot
+	 * @return le découpage
+	 */
+	public Decoupage decoupage() {return decoupage;}
+	/**
+	 * Associe au moteur les obstacles qui arrêtent la tortue
+	 * @param obstacles le registre des obstacles, null si aucun
+	 */
+	public void setObstacles(RegistreObstacles obstacles) {this.obstacles=obstacles;}
+	/**
+	 * Restitue les obstacles qui arrêtent la tortue
+	 * @return le registre des obstacles, null si aucun
+	 */
+	public RegistreObstacles obstacles() {return obstacles;}
+	/**
+	 * Fixe la réponse à un contact avec un obstacle ou le bord de la feuille
+	 * @param reponse ARRET, GLISSEMENT ou REBOND
+	 * @require argumentValide : reponse==ARRET || reponse==GLISSEMENT || reponse==REBOND
+	 */
+	public void setReponse(int reponse) {
+		if(reponse!=ARRET && reponse!=GLISSEMENT && reponse!=REBOND) throw new Require("argumentValide");
+		this.reponse=reponse;
+	}
+	/**
+	 * Restitue la réponse à un contact
+	 * @return ARRET, GLISSEMENT ou REBOND
+	 */
+	public int reponse() {return reponse;}
+	/**
+	 * Restitue la distance effectivement parcourue par le dernier avancer ou reculer,
+	 * déviations comprises
+	 * @return la distance
+	 */
+	public double parcouru() {return parcouru;}
+	/**
+	 * Fait avancer la tortue de d pas, le déplacement étant limité au bord de la feuille
+	 * @param d la distance à parcourir
+	 * @ensure CapInchange : _cap().equals(cap())
+	 * @ensure capOk : new Vecteur(_position(),position()).colineaire(cap())
+	 */
+	public void avancer(double d) {deplacer(d,capX,capY);}
+	/**
+	 * Fait reculer la tortue de d pas, le déplacement étant limité au bord de la feuille
+	 * @param d la distance à parcourir
+	 * @ensure CapInchange : _cap().equals(cap())
+	 * @ensure capOk : new Vecteur(_position(),position()).colineaire(cap())
+	 */
+	public void reculer(double d) {deplacer(d,-capX,-capY);}
+	/**
+	 * Déplace la tortue de d pas selon la direction unitaire (ux,uy). Chaque contact avec
+	 * un obstacle ou le bord termine un segment ; le reste du déplacement est abandonné,
+	 * ou poursuivi le long de la face touchée ou dans la direction réfléchie, selon la réponse.
+	 * @param d la distance à parcourir
+	 * @param ux l'abscisse de la direction
+	 * @param uy l'ordonnée de la direction
+	 */
+	protected void deplacer(double d, double ux, double uy) {
+		parcouru = 0;
+		for(int contact=0; ; contact++) {
+			double r = distanceReelle(d,ux,uy);
+			int nx = 0, ny = 0; // la normale de la face touchée
+			if(r<d) {
+				if(Mesures.ACTIVES) Mesures.DECOUPAGES.increment();
+				// le bord atteint est celui dont la tranche est franchie en premier
+				double tx = ux>0 ? (largeur/2-x)/ux : ux<0 ? (-largeur/2-x)/ux : Double.POSITIVE_INFINITY;
+				double ty = uy>0 ? (hauteur/2-y)/uy : uy<0 ? (-hauteur/2-y)/uy : Double.POSITIVE_INFINITY;
+				double ecart = 1e-9*Math.max(1, r);
+				if(tx<=ty+ecart) nx = ux>0 ? -1 : 1;
+				if(ty<=tx+ecart) ny = uy>0 ? -1 : 1;
+			}
+			if(obstacles!=null && r>0 && obstacles.impact(x,y,ux,uy,r,impact)) {
+				r = impact.distance;
+				nx = impact.normaleX; ny = impact.normaleY;
+				if(Mesures.ACTIVES) Mesures.COLLISIONS.increment();
+			}
+			// la destination découpée est ramenée sur la feuille, que l'arrondi pourrait dépasser d'un ulp
+			if(r>0 || contact==0) placer(Math.max(-largeur/2, Math.min(largeur/2, x+r*ux)), Math.max(-hauteur/2, Math.min(hauteur/2, y+r*uy)));
+			parcouru += r;
+			d -= r;
+			if(nx==0 && ny==0 || reponse==ARRET || contact==MAX_CONTACTS || d<=0) return;
+			if(reponse==GLISSEMENT) {
+				// seule la composante parallèle à la face touchée est conservée
+				double vx = nx!=0 ? 0 : ux, vy = ny!=0 ? 0 : uy;
+				double v = Math.hypot(vx,vy);
+				if(v==0) return;
+				d *= v; ux = vx/v; uy = vy/v;
+			}else{
+				if(nx!=0) ux = -ux;
+				if(ny!=0) uy = -uy;
+				refleter(nx!=0,ny!=0);
+			}
+		}
+	}
+	/**
+	 * Réfléchit le cap par rapport aux faces touchées ; un cap en degrés entiers le reste
+	 * @param x true pour une face perpendiculaire aux abscisses
+	 * @param y true pour une face perpendiculaire aux ordonnées
+	 */
+	protected void refleter(boolean x, boolean y) {
+		if(degres>=0) {
+			int a = degres;
+			if(x) a = 180-a;
+			if(y) a = -a;
+			orienterDegres(a);
+		}else{
+			double a = angle;
+			if(x) a = Math.PI-a;
+			if(y) a = -a;
+			orienter(a);
+		}
+	}
+	/* (non-Javadoc)
+	 * @see jus.aoo.turtle._Tortue#allerA(double, double)
+	 */
+	public void allerA(double dx, double dy) {translater(dx,dy);}
+	/**
+	 * Translate la tortue, trace le segment parcouru si la plume est baissée
+	 * @param dx le déplacement en abscisse
+	 * @param dy le déplacement en ordonnée
+	 */
+	protected void translater(double dx, double dy) {placer(x+dx,y+dy);}
+	/**
+	 * Place la tortue, trace le segment parcouru si la plume est baissée ; une destination
+	 * hors de la feuille est refusée avant tout changement d'état, rien n'étant tracé
+	 * @param nx l'abscisse de la destination
+	 * @param ny l'ordonnée de la destination
+	 */
+	protected void placer(double nx, double ny) {
+		_invariant(nx,ny);
+		double _x=x, _y=y;
+		x=nx; y=ny;
+		if(!estLeve) {
+			traceur.trace(_x,_y,x,y);
+			nbSegments++;
+			if(Mesures.ACTIVES) Mesures.SEGMENTS.increment();
+		}
+	}
+	/**
+	 * Fait tourner la tortue à droite d'un angle a
+	 * @param a l'angle de rotation en degré
+	 * @ensure PositionInchange : new Vecteur(_position(),position()).module() < Vecteur.EPSILON
+	 */
+	public void droite(double a) {
+		int e = (int)a;
+		if(degres>=0 && e==a) orienterDegres(degres-e);
+		else orienter(angle-Math.toRadians(a));
+	}
+	/**
+	 * Fait tourner la tortue à droite d'un angle entier a
+	 * @param a l'angle de rotation en degré
+	 * @ensure PositionInchange : new Vecteur(_position(),position()).module() < Vecteur.EPSILON
+	 */
+	public void droite(int a) {
+		if(degres>=0) orienterDegres(degres-a);
+		else orienter(angle-Math.toRadians(a));
+	}
+	/**
+	 * Fait tourner la tortue à gauche d'un angle a
+	 * @param a l'angle de rotation en degré
+	 * @ensure PositionInchange : new Vecteur(_position(),position()).module() < Vecteur.EPSILON
+	 */
+	public void gauche(double a) {
+		int e = (int)a;
+		if(degres>=0 && e==a) orienterDegres(degres+e);
+		else orienter(angle+Math.toRadians(a));
+	}
+	/**
+	 * Fait tourner la tortue à gauche d'un angle entier a
+	 * @param a l'angle de rotation en degré
+	 * @ensure PositionInchange : new Vecteur(_position(),position()).module() < Vecteur.EPSILON
+	 */
+	public void gauche(int a) {
+		if(degres>=0) orienterDegres(degres+a);
+		else orienter(angle+Math.toRadians(a));
+	}
+	/**
+	 * Fixe l'argument du cap ; le cap est recalculé à partir de l'argument et non cumulé,
+	 * il reste donc unitaire quel que soit le nombre de rotations.
+	 * @param a l'argument en radian
+	 */
+	protected void orienter(double a) {
+		angle = a % (2*Math.PI);
+		capX = Math.cos(angle);
+		capY = Math.sin(angle);
+		degres = -1;
+	}
+	/**
+	 * Fixe l'argument du cap à un nombre entier de degrés, le cap étant lu dans la table
+	 * @param a l'argument en degré
+	 */
+	protected void orienterDegres(int a) {
+		degres = TableDegres.indice(a);
+		angle = Math.toRadians(degres);
+		capX = TableDegres.COS[degres];
+		capY = TableDegres.SIN[degres];
+	}
+	/**
+	 * Lève la plume
+	 * @ensure PlumeLevée : estLeve()
+	 */
+	public void lever() {estLeve = true;}
+	/**
+	 * Baisse la plume
+	 * @ensure PlumeBaissée : !estLeve()
+	 */
+	public void baisser() {estLeve = false;}
+	/**
+	 * Restitue la représentation textuelle de la tortue
+	 * @return la chaine
+	 */
+	public String toString() {return "Tortue["+position()+","+cap()+"]";}
+	/**
+	 * Restitue la position de la tortue
+	 * @return le Point de référence de la tortue
+	 */
+	public Point position() {return new Point(x,y);}
+	/**
+	 * Restitue le cap de la tortue
+	 * @return le Vecteur de référence de la tortue
+	 */
+	public Vecteur cap() {return new Vecteur(capX,capY);}
+	/** @return l'abscisse de la tortue */
+	public double abscisse() {return x;}
+	/** @return l'ordonnée de la tortue */
+	public double ordonnee() {return y;}
+	/** @return l'argument du cap de la tortue, en radian */
+	public double angle() {return angle;}
+	/** @return l'argument du cap de la tortue en degré, dans [0,360[, ou -1 s'il n'est pas entier */
+	public int degres() {return degres;}
+	/** @return le nombre de segments transmis au traceur */
+	public int nbSegments() {return nbSegments;}
+	/**
+	 * Range l'état du moteur dans e à partir de i : position, argument du cap en radian puis
+	 * en degré, état de la plume et nombre de segments tracés, soit TAILLE_ETAT réels
+	 * @param e le tableau destination
+	 * @param i le rang du premier réel
+	 */
+	public void sauver(double[] e, int i) {
+		e[i]=x; e[i+1]=y; e[i+2]=angle; e[i+3]=degres;
+		e[i+4]=estLeve ? 1 : 0;
+		e[i+5]=nbSegments;
+	}
+	/**
+	 * Restaure un état rangé par sauver ; aucun segment n'est tracé
+	 * @param e le tableau source
+	 * @param i le rang du premier réel
+	 */
+	public void restaurer(double[] e, int i) {
+		x=e[i]; y=e[i+1];
+		if(e[i+3]>=0) orienterDegres((int)e[i+3]); else orienter(e[i+2]);
+		estLeve = e[i+4]!=0;
+		nbSegments = (int)e[i+5];
+	}
+	/**
+	 * Restitue l'état de la plume
+	 * @return true si la plume est levée
+	 */
+	public boolean estLeve() {return estLeve;}
+	/**
+	 * Vérifie la visibilité de la tortue dans la feuille
+	 * @return true visible , false non visible
+	 */
+	public boolean visible() {return visible(x,y);}
+	/**
+	 * Vérifie qu'un point est dans la feuille, bords compris
+	 * @param px l'abscisse du point
+	 * @param py l'ordonnée du point
+	 * @return true si le point est visible
+	 */
+	public boolean visible(double px, double py) {
+		return px  <= largeur/2
+			&& px  >= - largeur/2
+			&& py  <= hauteur/2
+			&& py  >= - hauteur/2;
+	}
+	/**
+	 * Vérifie que la destination d'un déplacement de d pas selon _cap est strictement dans la feuille
+	 * @param d la distance à parcourir
+	 * @param _cap la direction du déplacement
+	 * @return true si la destination est visible
+	 */
+	public boolean destinationVisible(double d, Vecteur _cap) {
+		return destinationVisible(d,_cap.dx(),_cap.dy());
+	}
+	/**
+	 * Vérifie que la destination d'un déplacement de d pas selon (ux,uy) est strictement dans la feuille
+	 * @param d la distance à parcourir
+	 * @param ux l'abscisse de la direction
+	 * @param uy l'ordonnée de la direction
+	 * @return true si la destination est visible
+	 */
+	public boolean destinationVisible(double d, double ux, double uy) {
+		double fx = x+d*ux, fy = y+d*uy;
+		return fx  < largeur/2
+				&& fx  > - largeur/2
+				&& fy  < hauteur/2
+				&& fy  > - hauteur/2;
+	}
+	/**
+	 * Calcule le déplacement effectif de d pas selon _cap, raccourci pour s'arrêter au bord de la feuille
+	 * @param d la distance souhaitée
+	 * @param _cap la direction du déplacement
+	 * @return le vecteur de déplacement effectif
+	 */
+	public Vecteur calculVecteurReel(double d, Vecteur _cap) {
+		Vecteur z =  new Vecteur(_cap);
+		z.homothetie(distanceReelle(d,_cap.dx(),_cap.dy()));
+		return z;
+	}
+	/**
+	 * Calcule la distance effectivement parcourue pour un déplacement de d pas selon
+	 * la direction (ux,uy), raccourci pour s'arrêter au bord de la feuille
+	 * @param d la distance souhaitée
+	 * @param ux l'abscisse de la direction
+	 * @param uy l'ordonnée de la direction
+	 * @return la distance effective
+	 */
+	public double distanceReelle(double d, double ux, double uy) {
+		return d*decoupage.sortie(x,y,d*ux,d*uy);
+	}
+	/**
+	 * Vérifie que la destination d'un déplacement est dans la feuille, avant que la tortue
+	 * ne s'y place : l'invariant est ainsi préservé par la commande refusée
+	 * @param nx l'abscisse de la destination
+	 * @param ny l'ordonnée de la destination
+	 * @invariant visible : visible()
+	 */
+	protected void _invariant(double nx, double ny) {
+		if(!visible(nx,ny)) {
+			if(Mesures.ACTIVES) Mesures.INVARIANTS.increment();
+			throw new Invariant("visible");
+		}
+	}
+}
@@ -0,0 +1,354 @@
+package jus.aoo.turtle;
+
+import java.util.Arrays;
+
+/**
+ * Planifie les trajets de la tortue en contournant les obstacles d'un registre.
+ * La feuille est découpée en cellules carrées de côté pas ; une cellule est bloquée si
+ * elle rencontre un obstacle. La grille est conservée d'une planification à l'autre :
+ * seuls les obstacles ajoutés au registre depuis la précédente y sont inscrits, elle
+ * n'est reconstruite que si les dimensions de la feuille changent.
+ * Le trajet est cherché par A* entre les centres des cellules, en 8-connexité sans couper
+ * les coins d'une cellule bloquée, en n'ouvrant que les points de saut, puis raccourci : chaque étape va aussi loin que possible
+ * en ligne droite sans rencontrer d'obstacle.
+ * La grille est un tableau de bits, doublé d'une copie transposée : lignes et colonnes
+ * sont parcourues 64 cellules à la fois. Toutes les structures de la recherche sont des
+ * tableaux de types primitifs, réutilisés d'une recherche à l'autre.
+ * @version 1.0
+ * @see Turtle#allerA(jus.aoo.geometrie.Point)
+ */
+public class Planificateur {
+	protected static final float RACINE2 = (float)Math.sqrt(2);
+	protected static final int VOISINAGE = 2; // la distance, en cellules, où chercher un départ libre
+	protected RegistreObstacles obstacles; // les obstacles contournés
+	protected int pas;                // le côté d'une cellule
+	protected int largeur, hauteur;   // les dimensions de la feuille couverte par la grille
+	protected double xmin, ymin;      // le coin inférieur de la grille
+	protected int nbColonnes, nbLignes;
+	protected int mots, motsColonne;  // le nombre de mots de 64 bits d'une ligne, d'une colonne
+	protected long[] lignes;          // les cellules libres, un bit par cellule, ligne par ligne
+	protected long[] colonnes;        // les mêmes, colonne par colonne
+	protected int nbInscrits;         // le nombre d'obstacles du registre inscrits dans la grille
+	protected float[] cout;           // le coût du meilleur chemin connu jusqu'à chaque cellule
+	protected int[] parent;           // la cellule précédente sur ce chemin
+	protected int[] marque;           // 2*recherche si la cellule a été atteinte lors de la recherche courante, +1 si elle est fermée
+	protected int recherche;          // le numéro de la recherche courante
+	protected int ouverte;            // la marque des cellules ouvertes de la recherche courante
+	protected int arrivee;            // la cellule d'arrivée de la recherche courante
+	protected int[] tas = new int[256];      // les cellules ouvertes, en tas binaire selon leur estimation
+	protected float[] cles = new float[256]; // l'estimation de chaque cellule du tas
+	protected int nbTas;
+	protected final Impact impact = new Impact();
+	/**
+	 * Construction d'un planificateur
+	 * @param obstacles les obstacles à contourner
+	 * @param pas le côté d'une cellule
+	 * @require argumentValide : obstacles!=null && pas>0
+	 */
+	public Planificateur(RegistreObstacles obstacles, int pas) {
+		this.obstacles=obstacles;
+		this.pas=pas;
+	}
+	/**
+	 * Cherche un trajet sans obstacle entre deux points de la feuille
+	 * @param x0 l'abscisse de départ
+	 * @param y0 l'ordonnée de départ
+	 * @param x1 l'abscisse d'arrivée
+	 * @param y1 l'ordonnée d'arrivée
+	 * @param largeur la largeur de la feuille, centrée sur l'origine
+	 * @param hauteur la hauteur de la feuille
+	 * @return les couples (x,y) des étapes du trajet, arrivée comprise et départ exclu,
+	 * ou null s'il n'y a pas de trajet
+	 */
+	public synchronized double[] chemin(double x0, double y0, double x1, double y1, int largeur, int hauteur) {
+		synchroniser(largeur,hauteur);
+		if(x1<-(largeur/2) || x1>largeur/2 || y1<-(hauteur/2) || y1>hauteur/2) return null;
+		if(visible(x0,y0,x1,y1)) return new double[]{x1,y1};
+		int depart = depart(x0,y0), arrivee = cellule(x1,y1);
+		if(depart<0 || !libre(arrivee%nbColonnes,arrivee/nbColonnes) || !chercher(depart,arrivee)) return null;
+		// les points du trajet : départ, centres des points de saut de depart à arrivee, arrivée
+		int n = 1;
+		for(int c=arrivee; c!=depart; c=parent[c]) n++;
+		double[] points = new double[2*n+4];
+		points[0]=x0; points[1]=y0;
+		points[2*n+2]=x1; points[2*n+3]=y1;
+		for(int c=arrivee, i=n; ; c=parent[c], i--) {
+			points[2*i]=centreX(c); points[2*i+1]=centreY(c);
+			if(c==depart) break;
+		}
+		// raccourcissement : depuis le dernier point retenu, on vise le plus loin possible
+		double[] etapes = new double[2*n+2];
+		int nb = 0;
+		double ax = x0, ay = y0;
+		for(int i=1; i<=n; i++) {
+			if(!visible(ax,ay,points[2*i+2],points[2*i+3])) {
+				ax=points[2*i]; ay=points[2*i+1];
+				etapes[nb++]=ax; etapes[nb++]=ay;
+			}
+		}
+		etapes[nb++]=x1; etapes[nb++]=y1;
+		return Arrays.copyOf(etapes,nb);
+	}
+	/**
+	 * Détermine la cellule de départ de la recherche : celle du point de départ si elle est libre,
+	 * sinon la plus proche des cellules libres voisines dont le centre est visible de ce point
+	 * @param x0 l'abscisse de départ
+	 * @param y0 l'ordonnée de départ
+	 * @return la cellule de départ, -1 si aucune ne convient
+	 */
+	protected int depart(double x0, double y0) {
+		int depart = cellule(x0,y0), c0 = depart%nbColonnes, l0 = depart/nbColonnes, choix = -1;
+		if(libre(c0,l0)) return depart;
+		double meilleure = Double.POSITIVE_INFINITY;
+		for(int l=l0-VOISINAGE; l<=l0+VOISINAGE; l++)
+			for(int c=c0-VOISINAGE; c<=c0+VOISINAGE; c++) {
+				if(!libre(c,l)) continue;
+				int v = l*nbColonnes+c;
+				double dx = centreX(v)-x0, dy = centreY(v)-y0, d = dx*dx+dy*dy;
+				if(d<meilleure && visible(x0,y0,centreX(v),centreY(v))) {meilleure=d; choix=v;}
+			}
+		return choix;
+	}
+	/**
+	 * Met la grille à jour : reconstruite si les dimensions de la feuille ont changé,
+	 * complétée des obstacles ajoutés au registre sinon
+	 * @param largeur la largeur de la feuille
+	 * @param hauteur la hauteur de la feuille
+	 */
+	protected void synchroniser(int largeur, int hauteur) {
+		if(lignes==null || largeur!=this.largeur || hauteur!=this.hauteur) {
+			this.largeur=largeur;
+			this.hauteur=hauteur;
+			xmin = -(largeur/2);
+			ymin = -(hauteur/2);
+			nbColonnes = Math.max(1, 2*(largeur/2)/pas);
+			nbLignes = Math.max(1, 2*(hauteur/2)/pas);
+			mots = (nbColonnes+63)>>>6;
+			motsColonne = (nbLignes+63)>>>6;
+			lignes = new long[nbLignes*mots];
+			colonnes = new long[nbColonnes*motsColonne];
+			for(int l=0; l<nbLignes; l++) remplir(lignes, l*mots, 0, nbColonnes-1, true);
+			for(int c=0; c<nbColonnes; c++) remplir(colonnes, c*motsColonne, 0, nbLignes-1, true);
+			int n = nbColonnes*nbLignes;
+			cout = new float[n];
+			parent = new int[n];
+			marque = new int[n];
+			recherche = 0;
+			nbInscrits = 0;
+		}
+		for(; nbInscrits<obstacles.nbObstacles(); nbInscrits++) {
+			java.awt.Rectangle r = obstacles.cadre(nbInscrits);
+			int c0 = Math.max(0, (int)Math.floor((r.x-xmin)/pas)), c1 = Math.min(nbColonnes-1, (int)Math.floor((r.x+r.width-xmin)/pas));
+			int l0 = Math.max(0, (int)Math.floor((r.y-ymin)/pas)), l1 = Math.min(nbLignes-1, (int)Math.floor((r.y+r.height-ymin)/pas));
+			if(c0>c1 || l0>l1) continue;
+			for(int l=l0; l<=l1; l++) remplir(lignes, l*mots, c0, c1, false);
+			for(int c=c0; c<=c1; c++) remplir(colonnes, c*motsColonne, l0, l1, false);
+		}
+	}
+	/**
+	 * Fixe les bits debut à fin d'une ligne de la grille
+	 * @param t la grille
+	 * @param base l'indice du premier mot de la ligne
+	 * @param debut le premier bit
+	 * @param fin le dernier bit
+	 * @param valeur true pour libérer les cellules, false pour les bloquer
+	 */
+	protected static void remplir(long[] t, int base, int debut, int fin, boolean valeur) {
+		for(int k=debut>>>6; k<=fin>>>6; k++) {
+			long m = -1L;
+			if(k==debut>>>6) m &= -1L<<(debut&63);
+			if(k==fin>>>6) m &= -1L>>>(63-(fin&63));
+			if(valeur) t[base+k] |= m; else t[base+k] &= ~m;
+		}
+	}
+	/**
+	 * Recherche par A* un chemin de cellules libres. Seuls les points de saut entrent dans
+	 * le tas (Jump Point Search) : les lignes droites et diagonales de cellules libres sont
+	 * parcourues sans y être ouvertes, jusqu'à une cellule où un détour par un obstacle
+	 * peut commencer.
+	 * @param depart la cellule de départ
+	 * @param arrivee la cellule d'arrivée
+	 * @return true si un chemin existe ; parent le décrit alors depuis l'arrivée,
+	 * deux points de saut successifs étant alignés sur une ligne, une colonne ou une diagonale
+	 */
+	protected boolean chercher(int depart, int arrivee) {
+		if(recherche==Integer.MAX_VALUE/2) {Arrays.fill(marque,0); recherche=0;}
+		ouverte = 2*++recherche;
+		this.arrivee = arrivee;
+		nbTas = 0;
+		cout[depart] = 0;
+		parent[depart] = depart;
+		marque[depart] = ouverte;
+		empiler(depart, heuristique(depart,arrivee));
+		while(nbTas>0) {
+			int u = depiler();
+			if(marque[u]==ouverte+1) continue; // entrée périmée du tas
+			if(u==arrivee) return true;
+			marque[u] = ouverte+1;
+			int c = u%nbColonnes, l = u/nbColonnes, p = parent[u];
+			if(p==u) {
+				// au départ, toutes les directions
+				for(int dl=-1; dl<=1; dl++)
+					for(int dc=-1; dc<=1; dc++)
+						if((dc!=0 || dl!=0) && (dc==0 || dl==0 || (libre(c+dc,l) && libre(c,l+dl)))) explorer(u,c,l,dc,dl);
+				continue;
+			}
+			int dc = Integer.signum(c-p%nbColonnes), dl = Integer.signum(l-p/nbColonnes);
+			if(dc!=0 && dl!=0) {
+				explorer(u,c,l,dc,0);
+				explorer(u,c,l,0,dl);
+				if(libre(c+dc,l) && libre(c,l+dl)) explorer(u,c,l,dc,dl);
+			}else if(dc!=0) {
+				explorer(u,c,l,dc,0);
+				for(int s=-1; s<=1; s+=2)
+					if(libre(c,l+s) && !libre(c-dc,l+s)) {
+						explorer(u,c,l,0,s);
+						if(libre(c+dc,l)) explorer(u,c,l,dc,s);
+					}
+			}else {
+				explorer(u,c,l,0,dl);
+				for(int s=-1; s<=1; s+=2)
+					if(libre(c+s,l) && !libre(c+s,l-dl)) {
+						explorer(u,c,l,s,0);
+						if(libre(c,l+dl)) explorer(u,c,l,s,dl);
+					}
+			}
+		}
+		return false;
+	}
+	/**
+	 * Ouvre le point de saut atteint depuis la cellule u dans la direction (dc,dl)
+	 * @param u la cellule fermée
+	 * @param c la colonne de u
+	 * @param l la ligne de u
+	 * @param dc la direction en colonne
+	 * @param dl la direction en ligne
+	 */
+	protected void explorer(int u, int c, int l, int dc, int dl) {
+		int v = sauter(c+dc,l+dl,dc,dl);
+		if(v<0 || marque[v]==ouverte+1) return;
+		float g = cout[u]+heuristique(u,v);
+		if(marque[v]==ouverte && g>=cout[v]) return;
+		cout[v] = g;
+		parent[v] = u;
+		marque[v] = ouverte;
+		empiler(v, g+heuristique(v,arrivee));
+	}
+	/**
+	 * Avance depuis la cellule (c,l) dans la direction (dc,dl) jusqu'au prochain point de saut
+	 * @return le point de saut, -1 si la direction mène à un obstacle ou au bord
+	 */
+	protected int sauter(int c, int l, int dc, int dl) {
+		int ca = arrivee%nbColonnes, la = arrivee/nbColonnes;
+		if(dl==0) {
+			int p = l<0 || l>=nbLignes ? -1 : balayer(lignes, nbLignes, mots, l, c, dc, l==la ? ca : -1);
+			return p<0 ? -1 : l*nbColonnes+p;
+		}
+		if(dc==0) {
+			int p = c<0 || c>=nbColonnes ? -1 : balayer(colonnes, nbColonnes, motsColonne, c, l, dl, c==ca ? la : -1);
+			return p<0 ? -1 : p*nbColonnes+c;
+		}
+		while(libre(c,l)) {
+			int v = l*nbColonnes+c;
+			if(v==arrivee) return v;
+			// en diagonale, la cellule est un point de saut si une ligne ou une colonne en part vers un point de saut
+			if(sauter(c+dc,l,dc,0)>=0 || sauter(c,l+dl,0,dl)>=0) return v;
+			if(!libre(c+dc,l) || !libre(c,l+dl)) return -1;
+			c+=dc; l+=dl;
+		}
+		return -1;
+	}
+	/**
+	 * Parcourt une rangée de la grille, ligne ou colonne, 64 cellules à la fois
+	 * @param t la grille, ligne par ligne ou colonne par colonne
+	 * @param n le nombre de rangées de t
+	 * @param mots le nombre de mots d'une rangée
+	 * @param i la rangée parcourue
+	 * @param j la position de départ dans la rangée
+	 * @param d le sens du parcours, 1 ou -1
+	 * @param cible la position de l'arrivée si elle est sur la rangée, -1 sinon
+	 * @return la position du premier point de saut, l'arrivée ou une cellule libre dont une
+	 * voisine de côté est libre alors que la précédente ne l'est pas, -1 si un obstacle ou le bord vient avant
+	 */
+	protected static int balayer(long[] t, int n, int mots, int i, int j, int d, int cible) {
+		if(j<0 || j>=mots<<6) return -1;
+		long premier = d>0 ? -1L<<(j&63) : -1L>>>(63-(j&63));
+		for(int k=j>>>6; k>=0 && k<mots; k+=d) {
+			long m = ~mot(t,n,mots,i,k) | force(t,n,mots,i-1,k,d) | force(t,n,mots,i+1,k,d);
+			if(cible>=0 && cible>>>6==k) m |= 1L<<(cible&63);
+			m &= premier;
+			premier = -1L;
+			if(m!=0) {
+				int p = (k<<6)+(d>0 ? Long.numberOfTrailingZeros(m) : 63-Long.numberOfLeadingZeros(m));
+				return p==cible || (t[i*mots+k]>>>(p&63)&1)!=0 ? p : -1;
+			}
+		}
+		return -1;
+	}
+	/** @return les cellules libres du mot k de la rangée r dont la précédente dans le sens d n'est pas libre */
+	protected static long force(long[] t, int n, int mots, int r, int k, int d) {
+		long m = mot(t,n,mots,r,k);
+		long precedent = d>0 ? m<<1 | mot(t,n,mots,r,k-1)>>>63 : m>>>1 | mot(t,n,mots,r,k+1)<<63;
+		return m & ~precedent;
+	}
+	/** @return le mot k de la rangée r, 0 hors de la grille */
+	protected static long mot(long[] t, int n, int mots, int r, int k) {
+		return r<0 || r>=n || k<0 || k>=mots ? 0 : t[r*mots+k];
+	}
+	/** @return true si la cellule (c,l) est dans la grille et libre */
+	protected boolean libre(int c, int l) {
+		return c>=0 && c<nbColonnes && l>=0 && l<nbLignes && (lignes[l*mots+(c>>>6)]>>>(c&63)&1)!=0;
+	}
+	/** @return la distance octogonale entre deux cellules, en nombre de cellules */
+	protected float heuristique(int u, int v) {
+		int dc = Math.abs(v%nbColonnes-u%nbColonnes), dl = Math.abs(v/nbColonnes-u/nbColonnes);
+		return Math.max(dc,dl)+(RACINE2-1)*Math.min(dc,dl);
+	}
+	/** Ajoute une cellule au tas */
+	protected void empiler(int cellule, float cle) {
+		if(nbTas==tas.length) {
+			tas = Arrays.copyOf(tas, 2*nbTas);
+			cles = Arrays.copyOf(cles, 2*nbTas);
+		}
+		int i = nbTas++;
+		while(i>0) {
+			int p = (i-1)>>>1;
+			if(cles[p]<=cle) break;
+			tas[i]=tas[p]; cles[i]=cles[p];
+			i=p;
+		}
+		tas[i]=cellule; cles[i]=cle;
+	}
+	/** Retire du tas la cellule de plus petite estimation */
+	protected int depiler() {
+		int resultat = tas[0];
+		int cellule = tas[--nbTas];
+		float cle = cles[nbTas];
+		int i = 0;
+		while(true) {
+			int f = 2*i+1;
+			if(f>=nbTas) break;
+			if(f+1<nbTas && cles[f+1]<cles[f]) f++;
+			if(cle<=cles[f]) break;
+			tas[i]=tas[f]; cles[i]=cles[f];
+			i=f;
+		}
+		tas[i]=cellule; cles[i]=cle;
+		return resultat;
+	}
+	/** @return la cellule contenant (x,y), ramenée dans la grille */
+	protected int cellule(double x, double y) {
+		int c = Math.min(nbColonnes-1, Math.max(0, (int)Math.floor((x-xmin)/pas)));
+		int l = Math.min(nbLignes-1, Math.max(0, (int)Math.floor((y-ymin)/pas)));
+		return l*nbColonnes+c;
+	}
+	/** @return l'abscisse du centre d'une cellule */
+	protected double centreX(int cellule) {return xmin+(cellule%nbColonnes+0.5)*pas;}
+	/** @return l'ordonnée du centre d'une cellule */
+	protected double centreY(int cellule) {return ymin+(cellule/nbColonnes+0.5)*pas;}
+	/** @return true si le segment [(x0,y0),(x1,y1)] ne rencontre aucun obstacle */
+	protected boolean visible(double x0, double y0, double x1, double y1) {
+		double dx = x1-x0, dy = y1-y0, d = Math.sqrt(dx*dx+dy*dy);
+		return d==0 || !obstacles.impact(x0,y0,dx/d,dy/d,d,impact);
+	}
+}
@@ -0,0 +1,100 @@
+package jus.aoo.turtle;
+
+import java.util.Arrays;
+
+/**
+ * Une suite de commandes de tortue, codée de façon compacte : un code d'opération
+ * par commande et, pour celles qui en ont, un ou deux opérandes.
+ * Un programme peut être exécuté par n'importe quelle {@link _Tortue}, en particulier
+ * par un {@link MoteurTortue} sans affichage.
+ * @version 1.0
+ */
+public class Programme {
+	/** les codes d'opération */
+	public static final byte AVANCER=0, RECULER=1, DROITE=2, GAUCHE=3, LEVER=4, BAISSER=5, ALLER_A=6;
+	protected byte[] codes;        // les codes d'opération
+	protected double[] operandes;  // les opérandes, dans l'ordre des commandes
+	protected int nbCodes, nbOperandes;
+	/** Construction d'un programme vide */
+	public Programme() {
+		codes = new byte[256];
+		operandes = new double[256];
+	}
+	/** @param d la distance à parcourir */
+	public void avancer(double d) {ajouter(AVANCER); operande(d);}
+	/** @param d la distance à parcourir */
+	public void reculer(double d) {ajouter(RECULER); operande(d);}
+	/** @param a l'angle de rotation en degré */
+	public void droite(double a) {ajouter(DROITE); operande(a);}
+	/** @param a l'angle de rotation en degré */
+	public void gauche(double a) {ajouter(GAUCHE); operande(a);}
+	/** lever la plume */
+	public void lever() {ajouter(LEVER);}
+	/** baisser la plume */
+	public void baisser() {ajouter(BAISSER);}
+	/**
+	 * @param dx le déplacement en abscisse
+	 * @param dy le déplacement en ordonnée
+	 */
+	public void allerA(double dx, double dy) {ajouter(ALLER_A); operande(dx); operande(dy);}
+	/**
+	 * Restitue le nombre de commandes du programme
+	 * @return le nombre de commandes
+	 */
+	public int taille() {return nbCodes;}
+	/** Oublie toutes les commandes */
+	public void clear() {nbCodes=0; nbOperandes=0;}
+	/**
+	 * Exécute le programme sur une tortue
+	 * @param t la tortue
+	 * @require argumentValide : t!=null
+	 */
+	public void executer(_Tortue t) {executer(t,0,nbCodes,0);}
+	/**
+	 * Exécute sur une tortue les commandes de rang compris entre debut inclus et fin exclue
+	 * @param t la tortue
+	 * @param debut le rang de la première commande exécutée
+	 * @param fin le rang suivant celui de la dernière commande exécutée
+	 * @param k le rang du premier opérande de la commande de rang debut
+	 * @return le rang du premier opérande de la commande de rang fin
+	 * @require argumentValide : t!=null && 0<=debut && debut<=fin && fin<=taille()
+	 */
+	public int executer(_Tortue t, int debut, int fin, int k) {
+		for(int i=debut; i<fin; i++) {
+			switch(codes[i]) {
+				case AVANCER : t.avancer(operandes[k++]); break;
+				case RECULER : t.reculer(operandes[k++]); break;
+				case DROITE  : t.droite(operandes[k++]); break;
+				case GAUCHE  : t.gauche(operandes[k++]); break;
+				case LEVER   : t.lever(); break;
+				case BAISSER : t.baisser(); break;
+				case ALLER_A : t.allerA(operandes[k],operandes[k+1]); k+=2; break;
+				default      : throw new IllegalStateException("code de commande inconnu "+codes[i]+" en "+i);
+			}
+		}
+		return k;
+	}
+	/**
+	 * Oublie les commandes de rang supérieur ou égal à n
+	 * @param n le nombre de commandes conservées
+	 * @param k le rang du premier opérande de la commande de rang n
+	 * @require argumentValide : 0<=n && n<=taille()
+	 */
+	public void tronquer(int n, int k) {nbCodes=n; nbOperandes=k;}
+	/**
+	 * Ajoute un code d'opération
+	 * @param code le code
+	 */
+	protected void ajouter(byte code) {
+		if(nbCodes==codes.length) codes = Arrays.copyOf(codes, 2*nbCodes);
+		codes[nbCodes++]=code;
+	}
+	/**
+	 * Ajoute un opérande
+	 * @param v la valeur
+	 */
+	protected void operande(double v) {
+		if(nbOperandes==operandes.length) operandes = Arrays.copyOf(operandes, 2*nbOperandes);
+		operandes[nbOperandes++]=v;
+	}
+}
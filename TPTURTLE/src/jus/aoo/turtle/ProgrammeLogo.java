@@ -0,0 +1,143 @@
+package jus.aoo.turtle;
+
+import java.util.Arrays;
+
+import jus.util.assertion.Require;
+
+/**
+ * Un programme Logo compilé : un code d'instructions pour une machine à pile, exécuté
+ * en boucle sur une tortue sans jamais réanalyser le texte source.
+ * Le programme principal commence à l'adresse 0 ; chaque procédure a son adresse d'entrée,
+ * son nombre de paramètres et son nombre de variables locales (paramètres et compteurs de
+ * répétition). Les appels récursifs utilisent des piles explicites : leur profondeur n'est
+ * limitée que par la mémoire, ou par le budget de l'exécution.
+ * Un budget borne le nombre d'instructions exécutées, la profondeur des appels et la durée
+ * de l'exécution ; son dépassement, comme l'interruption du fil qui l'exécute, arrête le
+ * programme par une ErreurLogo.
+ * @version 1.0
+ * @see CompilateurLogo
+ */
+public class ProgrammeLogo {
+	/** les codes d'instruction ; entre parenthèses les opérandes lus dans le code */
+	public static final int
+		CONST=0,    // (k) empile la constante k
+		LOCAL=1,    // (i) empile la variable locale i
+		RANGER=2,   // (i) dépile dans la variable locale i
+		ADD=3, SUB=4, MUL=5, DIV=6, NEG=7, INF=8, SUP=9, EGAL=10,
+		AVANCER=11, RECULER=12, DROITE=13, GAUCHE=14, LEVER=15, BAISSER=16, ALLER_A=17,
+		BOUCLE=18,  // (i,a) décrémente la variable i, saute en a si elle devient négative
+		SAUT=19,    // (a) saute en a
+		SAUT_FAUX=20, // (a) dépile, saute en a si la valeur est nulle
+		APPEL=21,   // (p) appelle la procédure p, ses arguments étant au sommet de la pile
+		RETOUR=22,  // termine la procédure courante
+		FIN=23;     // termine le programme
+	protected static final int PERIODE = 1<<12; // le nombre d'instructions entre deux lectures de l'horloge
+	protected int[] code;          // les instructions et leurs opérandes
+	protected double[] constantes; // les constantes numériques
+	protected int[] entrees;       // l'adresse d'entrée de chaque procédure
+	protected int[] nbParametres;  // le nombre de paramètres de chaque procédure
+	protected int[] nbLocaux;      // le nombre de variables locales de chaque procédure
+	protected int nbLocauxPrincipal; // le nombre de variables locales du programme principal
+	/**
+	 * Construction d'un programme compilé
+	 * @see CompilateurLogo#compiler(String)
+	 */
+	protected ProgrammeLogo(int[] code, double[] constantes, int[] entrees, int[] nbParametres, int[] nbLocaux, int nbLocauxPrincipal) {
+		this.code=code;
+		this.constantes=constantes;
+		this.entrees=entrees;
+		this.nbParametres=nbParametres;
+		this.nbLocaux=nbLocaux;
+		this.nbLocauxPrincipal=nbLocauxPrincipal;
+	}
+	/**
+	 * Restitue la taille du code
+	 * @return le nombre de mots du code
+	 */
+	public int taille() {return code.length;}
+	/**
+	 * Exécute le programme sur une tortue, sans budget
+	 * @param t la tortue
+	 * @require argumentValide : t!=null
+	 */
+	public void executer(_Tortue t) {executer(t,Long.MAX_VALUE,Integer.MAX_VALUE,Long.MAX_VALUE);}
+	/**
+	 * Exécute le programme sur une tortue dans un budget
+	 * @param t la tortue
+	 * @param maxInstructions le nombre maximal d'instructions exécutées
+	 * @param maxProfondeur le nombre maximal d'appels imbriqués
+	 * @param delai la durée maximale de l'exécution, en ms
+	 * @throws ErreurLogo si le budget est dépassé ou le fil interrompu, la tortue restant dans l'état atteint
+	 * @require argumentValide : t!=null && maxInstructions>=0 && maxProfondeur>=0 && delai>=0
+	 */
+	public void executer(_Tortue t, long maxInstructions, int maxProfondeur, long delai) {
+		if(t==null || maxInstructions<0 || maxProfondeur<0 || delai<0) throw new Require("argumentValide");
+		final int[] code = this.code;
+		final double[] constantes = this.constantes;
+		double[] pile = new double[32]; int sp = 0;             // la pile des opérandes
+		double[] locaux = new double[Math.max(64,2*nbLocauxPrincipal)]; // les variables des appels en cours
+		int base = 0, sommet = nbLocauxPrincipal;               // les variables de l'appel courant
+		int[] retours = new int[32], bases = new int[32]; int fp = 0; // la pile des appels
+		int pc = 0;
+		// l'horloge et l'interruption ne sont lues que toutes les PERIODE instructions, au prochain contrôle
+		long n = 0, controle = Math.min(maxInstructions, PERIODE);
+		long debut = System.nanoTime(), duree = delai>=Long.MAX_VALUE/1000000 ? Long.MAX_VALUE : delai*1000000;
+		while(true) {
+			if(++n>controle) {
+				if(n>maxInstructions) throw new ErreurLogo("programme trop long : plus de "+maxInstructions+" instructions");
+				if(duree!=Long.MAX_VALUE && System.nanoTime()-debut>duree) throw new ErreurLogo("programme trop long : plus de "+delai+" ms");
+				if(Thread.currentThread().isInterrupted()) throw new ErreurLogo("programme interrompu");
+				controle = Math.min(maxInstructions, n+PERIODE);
+			}
+			if(sp+2>pile.length) pile = Arrays.copyOf(pile, 2*pile.length);
+			switch(code[pc++]) {
+				case CONST  : pile[sp++] = constantes[code[pc++]]; break;
+				case LOCAL  : pile[sp++] = locaux[base+code[pc++]]; break;
+				case RANGER : locaux[base+code[pc++]] = pile[--sp]; break;
+				case ADD    : sp--; pile[sp-1] += pile[sp]; break;
+				case SUB    : sp--; pile[sp-1] -= pile[sp]; break;
+				case MUL    : sp--; pile[sp-1] *= pile[sp]; break;
+				case DIV    : sp--; pile[sp-1] /= pile[sp]; break;
+				case NEG    : pile[sp-1] = -pile[sp-1]; break;
+				case INF    : sp--; pile[sp-1] = pile[sp-1] < pile[sp] ? 1 : 0; break;
+				case SUP    : sp--; pile[sp-1] = pile[sp-1] > pile[sp] ? 1 : 0; break;
+				case EGAL   : sp--; pile[sp-1] = pile[sp-1] == pile[sp] ? 1 : 0; break;
+				case AVANCER: t.avancer(pile[--sp]); break;
+				case RECULER: t.reculer(pile[--sp]); break;
+				case DROITE : t.droite(pile[--sp]); break;
+				case GAUCHE : t.gauche(pile[--sp]); break;
+				case LEVER  : t.lever(); break;
+				case BAISSER: t.baisser(); break;
+				case ALLER_A: sp-=2; t.allerA(pile[sp],pile[sp+1]); break;
+				case BOUCLE : {
+					int i = base+code[pc++], a = code[pc++];
+					if(--locaux[i] < 0) pc = a;
+					break;
+				}
+				case SAUT   : pc = code[pc]; break;
+				case SAUT_FAUX : {
+					int a = code[pc++];
+					if(pile[--sp]==0) pc = a;
+					break;
+				}
+				case APPEL  : {
+					int p = code[pc++], nb = nbParametres[p];
+					if(fp==maxProfondeur) throw new ErreurLogo("récursion trop profonde : plus de "+maxProfondeur+" appels imbriqués");
+					if(fp==retours.length) {
+						retours = Arrays.copyOf(retours, 2*fp);
+						bases = Arrays.copyOf(bases, 2*fp);
+					}
+					retours[fp] = pc; bases[fp] = base; fp++;
+					base = sommet; sommet = base+nbLocaux[p];
+					if(sommet>locaux.length) locaux = Arrays.copyOf(locaux, Math.max(2*locaux.length, sommet));
+					sp -= nb;
+					System.arraycopy(pile, sp, locaux, base, nb);
+					pc = entrees[p];
+					break;
+				}
+				case RETOUR : fp--; sommet = base; base = bases[fp]; pc = retours[fp]; break;
+				default     : return;
+			}
+		}
+	}
+}
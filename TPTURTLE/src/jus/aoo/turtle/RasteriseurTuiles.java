@@ -0,0 +1,312 @@
+package jus.aoo.turtle;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+/**
+ * Rastérise sans affichage un dessin de tortue sur une toile de très grande taille,
+ * découpée en tuiles carrées écrites chacune dans un fichier PNG.
+ * Le repère est celui de la feuille (origine au centre, ordonnées vers le haut) et le
+ * rendu de chaque tuile est celui qu'ExportTrace donnerait de la toile entière.
+ * Les segments de la trace sont répartis entre les tuiles qu'ils touchent, puis les tuiles
+ * sont rastérisées en parallèle sur un ForkJoinPool, chacune dans sa propre image. Seules
+ * les tuiles touchées par un segment ou un obstacle sont rastérisées et écrites ; les autres
+ * sont du fond. Les tuiles sont en couleurs indexées. La mémoire reste bornée : les tuiles sont traitées par bandes de lignes dont
+ * les segments répartis ne dépassent pas un budget, et chaque tuile terminée est écrite puis
+ * oubliée.
+ * Le dossier reçoit les fichiers tuile-ligne-colonne.png et un fichier tuiles.txt donnant
+ * les dimensions de la toile, la taille des tuiles, la couleur du fond et la liste des tuiles.
+ * La trace est typiquement produite par un MoteurTortue dimensionné comme la toile.
+ * @version 1.0
+ * @see ExportTrace
+ */
+public class RasteriseurTuiles {
+	public static final int TUILE = 512;                   // la taille par défaut des tuiles
+	protected static final int BUDGET = 1<<22;             // le nombre par défaut de segments répartis par bande, 64 Mo
+	protected int largeur, hauteur, tuile;                 // les dimensions de la toile et des tuiles
+	protected int nbLignes, nbColonnes;                    // le nombre de tuiles
+	protected int budget = BUDGET;
+	protected Color fond = Color.WHITE, couleurTrace = Color.BLACK, couleurObstacle = Color.RED;
+	protected ForkJoinPool pool = ForkJoinPool.commonPool();
+	/**
+	 * Construction d'un rastériseur
+	 * @param largeur la largeur de la toile
+	 * @param hauteur la hauteur de la toile
+	 * @param tuile la taille des tuiles
+	 * @require dimensionsValides : largeur>0 && hauteur>0 && tuile>0
+	 */
+	public RasteriseurTuiles(int largeur, int hauteur, int tuile) {
+		this.largeur=largeur;
+		this.hauteur=hauteur;
+		this.tuile=tuile;
+		nbColonnes = (int)((largeur+(long)tuile-1)/tuile);
+		nbLignes = (int)((hauteur+(long)tuile-1)/tuile);
+	}
+	/**
+	 * Fixe les couleurs du dessin
+	 * @param fond la couleur du fond
+	 * @param trace la couleur des segments
+	 * @param obstacle la couleur des obstacles
+	 */
+	public void setCouleurs(Color fond, Color trace, Color obstacle) {
+		this.fond=fond;
+		couleurTrace=trace;
+		couleurObstacle=obstacle;
+	}
+	/**
+	 * Fixe le nombre maximal de segments répartis entre les tuiles d'une bande ; une bande
+	 * comprend au moins une ligne de tuiles
+	 * @param budget le nombre de segments, 16 octets chacun
+	 * @require argumentValide : budget>0
+	 */
+	public void setBudget(int budget) {this.budget=budget;}
+	/**
+	 * Fixe le pool rastérisant les tuiles
+	 * @param pool le pool, ForkJoinPool.commonPool() par défaut
+	 */
+	public void setPool(ForkJoinPool pool) {this.pool=pool;}
+	/** @return le nombre de lignes de tuiles */
+	public int nbLignes() {return nbLignes;}
+	/** @return le nombre de colonnes de tuiles */
+	public int nbColonnes() {return nbColonnes;}
+	/**
+	 * Rastérise le dessin
+	 * @param trace les segments, parcourus une fois plus une fois par bande
+	 * @param obstacles les obstacles, null si aucun
+	 * @param dossier le dossier recevant les tuiles, créé s'il n'existe pas
+	 * @return le nombre de tuiles écrites
+	 * @throws IOException si l'écriture échoue
+	 */
+	public int rasteriser(_Trace trace, RegistreObstacles obstacles, Path dossier) throws IOException {
+		Files.createDirectories(dossier);
+		// les tuiles touchées par les obstacles et le nombre de segments de chaque tuile
+		BitSet tuilesObstacles = new BitSet();
+		if(obstacles!=null)
+			for(int i=0; i<obstacles.nbObstacles(); i++) {
+				Rectangle r = pixels(obstacles.cadre(i));
+				int l0 = Math.max(0, Math.floorDiv(r.y,tuile)), l1 = Math.min(nbLignes-1, Math.floorDiv(r.y+r.height,tuile));
+				int c0 = Math.max(0, Math.floorDiv(r.x,tuile)), c1 = Math.min(nbColonnes-1, Math.floorDiv(r.x+r.width,tuile));
+				for(int l=l0; l<=l1; l++) tuilesObstacles.set(l*nbColonnes+c0, l*nbColonnes+Math.max(c0,c1+1));
+			}
+		Repartition comptage = new Repartition(0, nbLignes, null);
+		trace.parcourir(comptage);
+		int[] compte = comptage.compte;
+		List<String> noms = Collections.synchronizedList(new ArrayList<String>());
+		for(int debut=0; debut<nbLignes; ) {
+			// la bande : autant de lignes que le budget le permet, une au moins
+			long n = 0;
+			int fin = debut;
+			do {
+				for(int c=0; c<nbColonnes; c++) n += compte[fin*nbColonnes+c];
+				fin++;
+			}while(fin<nbLignes && n+compteLigne(compte,fin)<=budget);
+			Repartition bande = new Repartition(debut, fin, compte);
+			if(n>0) trace.parcourir(bande);
+			List<Integer> tuiles = new ArrayList<Integer>();
+			for(int t=debut*nbColonnes; t<fin*nbColonnes; t++)
+				if(compte[t]>0 || tuilesObstacles.get(t)) tuiles.add(t);
+			try{
+				pool.invoke(new Rasterisation(tuiles, 0, tuiles.size(), bande, obstacles, dossier, noms));
+			}catch(UncheckedIOException e){
+				throw e.getCause();
+			}
+			debut = fin;
+		}
+		Collections.sort(noms);
+		try(Writer out = new BufferedWriter(Channels.newWriter(ExportTrace.ouvrir(dossier.resolve("tuiles.txt")),"UTF-8"))){
+			out.write(largeur+" "+hauteur+" "+tuile+" "+ExportTrace.couleur(fond)+"\n");
+			for(String nom : noms) out.write(nom+"\n");
+		}
+		return noms.size();
+	}
+	/** @return le nombre de segments des tuiles de la ligne l */
+	protected long compteLigne(int[] compte, int l) {
+		long n = 0;
+		for(int c=0; c<nbColonnes; c++) n += compte[l*nbColonnes+c];
+		return n;
+	}
+	/** @return le rectangle r du repère de la feuille, en pixels de la toile */
+	protected Rectangle pixels(Rectangle r) {
+		return new Rectangle(r.x+largeur/2, hauteur/2-(r.y+r.height), r.width, r.height);
+	}
+	/**
+	 * Répartit les segments entre les tuiles d'une bande de lignes ; sans comptes préalables,
+	 * compte seulement les segments de chaque tuile. Un segment est attribué à chaque tuile
+	 * que son tracé, élargi d'un pixel, rencontre.
+	 */
+	protected class Repartition implements _Traceur {
+		protected int debut, fin;      // la bande de lignes de tuiles
+		protected int[] compte;        // le nombre de segments de chaque tuile de la toile
+		protected float[][] segments;  // les quadruplets (x1,y1,x2,y2) de chaque tuile de la bande, repère de la feuille
+		protected int[] remplis;       // le nombre de segments déjà répartis dans chaque tuile de la bande
+		protected final boolean comptage;
+		/**
+		 * @param debut la première ligne de la bande
+		 * @param fin la ligne suivant la dernière
+		 * @param compte le nombre de segments de chaque tuile, null pour les compter
+		 */
+		protected Repartition(int debut, int fin, int[] compte) {
+			this.debut=debut;
+			this.fin=fin;
+			comptage = compte==null;
+			if(comptage) this.compte = new int[nbLignes*nbColonnes];
+			else {
+				this.compte = compte;
+				segments = new float[(fin-debut)*nbColonnes][];
+				remplis = new int[segments.length];
+				for(int i=0; i<segments.length; i++) {
+					int n = compte[debut*nbColonnes+i];
+					if(n>0) segments[i] = new float[4*n];
+				}
+			}
+		}
+		public void trace(double x1, double y1, double x2, double y2) {
+			// les extrémités en pixels de la toile
+			double px1 = x1+largeur/2, py1 = hauteur/2-y1, px2 = x2+largeur/2, py2 = hauteur/2-y2;
+			double ymin = Math.min(py1,py2)-1, ymax = Math.max(py1,py2)+1;
+			int l0 = Math.max(debut, (int)Math.floor(ymin/tuile)), l1 = Math.min(fin-1, (int)Math.floor(ymax/tuile));
+			for(int l=l0; l<=l1; l++) {
+				// la portion du segment dans la ligne de tuiles, élargie d'un pixel
+				double ya = l*(double)tuile-1, yb = (l+1)*(double)tuile+1, xa, xb;
+				if(py1==py2) {xa=px1; xb=px2;}
+				else {
+					double ta = (ya-py1)/(py2-py1), tb = (yb-py1)/(py2-py1);
+					double t0 = Math.max(0, Math.min(ta,tb)), t1 = Math.min(1, Math.max(ta,tb));
+					xa = px1+t0*(px2-px1); xb = px1+t1*(px2-px1);
+				}
+				int c0 = Math.max(0, (int)Math.floor((Math.min(xa,xb)-1)/tuile));
+				int c1 = Math.min(nbColonnes-1, (int)Math.floor((Math.max(xa,xb)+1)/tuile));
+				for(int c=c0; c<=c1; c++) {
+					int t = l*nbColonnes+c;
+					if(comptage) compte[t]++;
+					else {
+						int i = t-debut*nbColonnes, k = 4*remplis[i]++;
+						float[] s = segments[i];
+						s[k]=(float)x1; s[k+1]=(float)y1; s[k+2]=(float)x2; s[k+3]=(float)y2;
+					}
+				}
+			}
+		}
+	}
+	/** Rastérise et écrit des tuiles d'une bande, en les partageant entre les threads du pool */
+	protected class Rasterisation extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		protected List<Integer> tuiles; // les tuiles touchées de la bande
+		protected int debut, fin;       // les tuiles traitées par cette tâche
+		protected Repartition bande;
+		protected RegistreObstacles obstacles;
+		protected Path dossier;
+		protected List<String> noms;    // les fichiers écrits
+		protected Rasterisation(List<Integer> tuiles, int debut, int fin, Repartition bande,
+				RegistreObstacles obstacles, Path dossier, List<String> noms) {
+			this.tuiles=tuiles;
+			this.debut=debut;
+			this.fin=fin;
+			this.bande=bande;
+			this.obstacles=obstacles;
+			this.dossier=dossier;
+			this.noms=noms;
+		}
+		protected void compute() {
+			if(fin-debut>1) {
+				int milieu = (debut+fin)>>>1;
+				invokeAll(new Rasterisation(tuiles,debut,milieu,bande,obstacles,dossier,noms),
+						new Rasterisation(tuiles,milieu,fin,bande,obstacles,dossier,noms));
+				return;
+			}
+			if(fin==debut) return;
+			int t = tuiles.get(debut), l = t/nbColonnes, c = t%nbColonnes;
+			int i = t-bande.debut*nbColonnes;
+			float[] s = bande.segments[i];
+			bande.segments[i] = null; // la tuile terminée ne retient plus ses segments
+			String nom = "tuile-"+l+"-"+c+".png";
+			try{
+				ecrire(rasteriser(l,c,s,bande.remplis[i],obstacles), dossier.resolve(nom));
+			}catch(IOException e){
+				throw new UncheckedIOException(e);
+			}
+			noms.add(nom);
+		}
+	}
+	/**
+	 * Rastérise une tuile
+	 * @param l la ligne de la tuile
+	 * @param c la colonne de la tuile
+	 * @param s les quadruplets (x1,y1,x2,y2) des segments de la tuile, null si aucun
+	 * @param n le nombre de segments
+	 * @param obstacles les obstacles, null si aucun
+	 * @return l'image de la tuile
+	 */
+	protected BufferedImage rasteriser(int l, int c, float[] s, int n, RegistreObstacles obstacles) {
+		int x0 = c*tuile, y0 = l*tuile;
+		int tl = Math.min(tuile, largeur-x0), th = Math.min(tuile, hauteur-y0);
+		BufferedImage image = new BufferedImage(tl,th,BufferedImage.TYPE_BYTE_INDEXED,palette());
+		Graphics2D g = image.createGraphics();
+		g.setColor(fond);
+		g.fillRect(0,0,tl,th);
+		g.translate(largeur/2-x0,hauteur/2-y0);
+		g.scale(1,-1);
+		if(obstacles!=null) {
+			g.setColor(couleurObstacle);
+			Rectangle zone = new Rectangle(x0-1,y0-1,tl+2,th+2);
+			// seuls les obstacles des cellules du registre proches de la tuile sont examinés
+			for(int i : obstacles.recouvrant(x0-largeur/2-2, hauteur/2-y0-th-2, tl+4, th+4)) {
+				Rectangle cadre = obstacles.cadre(i);
+				if(zone.intersects(pixels(cadre))) g.fillRect(cadre.x,cadre.y,cadre.width,cadre.height);
+			}
+		}
+		g.setColor(couleurTrace);
+		for(int k=0; k<4*n; k+=4)
+			g.drawLine(Math.round(s[k]),Math.round(s[k+1]),Math.round(s[k+2]),Math.round(s[k+3]));
+		g.dispose();
+		return image;
+	}
+	/**
+	 * Restitue la palette des tuiles : le fond, les segments et les obstacles. Sur un octet
+	 * par pixel, une tuile est compressée plusieurs fois plus vite qu'en RGB ; les pixels
+	 * sont ceux du rendu RGB, ce qui n'est pas le cas sur deux bits (TYPE_BYTE_BINARY)
+	 * pour les segments transformés.
+	 * @return la palette
+	 */
+	protected IndexColorModel palette() {
+		Color[] couleurs = {fond, couleurTrace, couleurObstacle};
+		byte[] r = new byte[3], v = new byte[3], b = new byte[3];
+		for(int i=0; i<3; i++) {
+			r[i]=(byte)couleurs[i].getRed();
+			v[i]=(byte)couleurs[i].getGreen();
+			b[i]=(byte)couleurs[i].getBlue();
+		}
+		return new IndexColorModel(8,3,r,v,b);
+	}
+	/** Écrit une image au format PNG, sans passer par le cache fichier d'ImageIO */
+	protected static void ecrire(BufferedImage image, Path fichier) throws IOException {
+		try(FileChannel canal = ExportTrace.ouvrir(fichier);
+			OutputStream out = new BufferedOutputStream(Channels.newOutputStream(canal),ExportTrace.TAILLE_TAMPON);
+			ImageOutputStream sortie = new MemoryCacheImageOutputStream(out)){
+			if(!ImageIO.write(image,"png",sortie)) throw new IOException("pas d'encodeur PNG disponible");
+		}
+	}
+}
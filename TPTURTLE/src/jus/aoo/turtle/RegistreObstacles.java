@@ -0,0 +1,345 @@
+package jus.aoo.turtle;
+
+import java.util.Arrays;
+
+import jus.aoo.geometrie.Point;
+import jus.util.assertion.Require;
+
+/**
+ * Registre des obstacles placés dans l'espace de la tortue.
+ * Les cadres des obstacles sont rangés dans une grille uniforme de cellules carrées ;
+ * la recherche du premier obstacle rencontré par un déplacement ne parcourt que les
+ * cellules traversées (algorithme d'Amanatides et Woo), sa durée ne dépend donc pas
+ * du nombre total d'obstacles.
+ * La grille couvre toujours l'ensemble des obstacles : elle est agrandie, et reconstruite,
+ * quand un obstacle en déborde. Les recherches ne modifient pas le registre : elles peuvent
+ * être menées simultanément par plusieurs fils d'exécution en l'absence d'ajout.
+ * Un lot d'obstacles, chargé d'une scène notamment (voir SceneObstacles), est rangé en une
+ * seule fois dans la grille.
+ * @version 1.0
+ * @see Obstacle
+ */
+public class RegistreObstacles {
+	protected int xmin, ymin;           // le coin inférieur de l'étendue couverte par la grille
+	protected int taille;               // le côté d'une cellule
+	protected int nbColonnes, nbLignes; // les dimensions de la grille
+	protected int[][] cellules;         // les numéros des obstacles recouvrant chaque cellule
+	protected int[] nbParCellule;       // le nombre d'obstacles de chaque cellule
+	protected int[] cadres;             // les quadruplets (x,y,largeur,hauteur) des obstacles
+	protected Obstacle[] obstacles;     // les obstacles, dans l'ordre d'ajout
+	protected int nbObstacles;
+	/** le nombre maximal de cellules de la grille, au-delà duquel les cellules sont agrandies */
+	protected static final int MAX_CELLULES = 1<<22;
+	/** Construction d'un registre vide, sa grille couvrant initialement [-2048,2048]x[-2048,2048] par cellules de 32 */
+	public RegistreObstacles() {this(-2048,-2048,4096,4096,32);}
+	/**
+	 * Construction d'un registre vide dont la grille couvre initialement une étendue donnée
+	 * @param xmin l'abscisse du coin inférieur de l'étendue
+	 * @param ymin l'ordonnée du coin inférieur de l'étendue
+	 * @param largeur la largeur de l'étendue
+	 * @param hauteur la hauteur de l'étendue
+	 * @param taille le côté d'une cellule
+	 * @require argumentValide : largeur>0 && hauteur>0 && taille>0
+	 */
+	public RegistreObstacles(int xmin, int ymin, int largeur, int hauteur, int taille) {
+		if(largeur<=0 || hauteur<=0 || taille<=0) throw new Require("argumentValide");
+		cadres = new int[64];
+		obstacles = new Obstacle[16];
+		quadriller(xmin,ymin,largeur,hauteur,taille);
+	}
+	/**
+	 * Ajoute un obstacle au registre
+	 * @param o l'obstacle
+	 * @require argumentValide : o!=null
+	 */
+	public synchronized void ajouter(Obstacle o) {
+		reserver(1);
+		int n = nbObstacles++;
+		int x = (int)o.p1.abscisse(), y = (int)o.p1.ordonnee();
+		obstacles[n]=o;
+		cadres[4*n]=x; cadres[4*n+1]=y; cadres[4*n+2]=o.width; cadres[4*n+3]=o.height;
+		if(!etendre(x, y, x+(long)o.width, y+(long)o.height)) inserer(n);
+	}
+	/**
+	 * Ajoute un lot d'obstacles au registre. La grille est agrandie au plus une fois et
+	 * chaque cellule n'est allouée qu'une fois ; les objets Obstacle ne sont créés qu'à la
+	 * demande, par obstacle(n).
+	 * @param c les quadruplets (x,y,largeur,hauteur) des cadres des obstacles
+	 * @param debut le numéro dans c du premier obstacle ajouté
+	 * @param nb le nombre d'obstacles ajoutés
+	 * @require argumentValide : 0<=debut && c.length>=4*(debut+nb)
+	 * @require dimensionsValides : largeurs et hauteurs positives ou nulles
+	 */
+	public synchronized void ajouter(int[] c, int debut, int nb) {
+		if(nb<=0) return;
+		long x0 = Long.MAX_VALUE, y0 = Long.MAX_VALUE, x1 = Long.MIN_VALUE, y1 = Long.MIN_VALUE;
+		for(int i=4*debut; i<4*(debut+nb); i+=4) {
+			if(c[i+2]<0 || c[i+3]<0) throw new Require("dimensionsValides");
+			x0 = Math.min(x0, c[i]); y0 = Math.min(y0, c[i+1]);
+			x1 = Math.max(x1, c[i]+(long)c[i+2]); y1 = Math.max(y1, c[i+1]+(long)c[i+3]);
+		}
+		reserver(nb);
+		int premier = nbObstacles;
+		System.arraycopy(c, 4*debut, cadres, 4*premier, 4*nb);
+		nbObstacles += nb;
+		if(!etendre(x0, y0, x1, y1)) inserer(premier, nbObstacles);
+	}
+	/**
+	 * Restitue le nombre d'obstacles du registre
+	 * @return le nombre d'obstacles
+	 */
+	public int nbObstacles() {return nbObstacles;}
+	/**
+	 * Restitue un obstacle du registre
+	 * @param n le numéro de l'obstacle, dans l'ordre d'ajout
+	 * @return l'obstacle
+	 * @require argumentValide : 0<=n && n<nbObstacles()
+	 */
+	public Obstacle obstacle(int n) {
+		// les obstacles ajoutés par lot sont créés au premier accès ; deux accès simultanés
+		// peuvent créer deux objets identiques, dont un seul est conservé
+		Obstacle o = obstacles[n];
+		if(o==null) {
+			int x = cadres[4*n], y = cadres[4*n+1];
+			o = obstacles[n] = new Obstacle(new Point(x,y), new Point(x+cadres[4*n+2],y+cadres[4*n+3]));
+		}
+		return o;
+	}
+	/**
+	 * Restitue le cadre d'un obstacle du registre, sans créer l'obstacle
+	 * @param n le numéro de l'obstacle, dans l'ordre d'ajout
+	 * @return le cadre
+	 * @require argumentValide : 0<=n && n<nbObstacles()
+	 */
+	public java.awt.Rectangle cadre(int n) {
+		return new java.awt.Rectangle(cadres[4*n],cadres[4*n+1],cadres[4*n+2],cadres[4*n+3]);
+	}
+	/**
+	 * Recherche les obstacles dont le cadre rencontre une zone ; seules les cellules
+	 * recouvrant la zone sont parcourues
+	 * @param x l'abscisse du coin inférieur de la zone
+	 * @param y l'ordonnée du coin inférieur de la zone
+	 * @param largeur la largeur de la zone
+	 * @param hauteur la hauteur de la zone
+	 * @return les numéros des obstacles, chacun une seule fois, dans un ordre quelconque
+	 * @require argumentValide : largeur>=0 && hauteur>=0
+	 */
+	public int[] recouvrant(int x, int y, int largeur, int hauteur) {
+		int[] res = new int[16];
+		int nb = 0;
+		long xz = x+(long)largeur, yz = y+(long)hauteur;
+		int c0 = colonne(x), c1 = colonne((int)Math.min(xz,Integer.MAX_VALUE));
+		int l0 = ligne(y), l1 = ligne((int)Math.min(yz,Integer.MAX_VALUE));
+		for(int l=l0; l<=l1; l++)
+			for(int c=c0; c<=c1; c++) {
+				int cellule = l*nbColonnes+c;
+				for(int k=0; k<nbParCellule[cellule]; k++) {
+					int n = cellules[cellule][k];
+					int ox = cadres[4*n], oy = cadres[4*n+1];
+					// un obstacle rangé dans plusieurs cellules n'est retenu que dans la première d'entre elles rencontrant la zone
+					if(Math.max(colonne(ox),c0)!=c || Math.max(ligne(oy),l0)!=l) continue;
+					if(ox>xz || ox+(long)cadres[4*n+2]<x || oy>yz || oy+(long)cadres[4*n+3]<y) continue;
+					if(nb==res.length) res = Arrays.copyOf(res, 2*nb);
+					res[nb++]=n;
+				}
+			}
+		return Arrays.copyOf(res, nb);
+	}
+	/**
+	 * Indique si un point appartient à l'un des obstacles
+	 * @param p le point
+	 * @return true si un obstacle contient p
+	 */
+	public boolean contains(Point p) {
+		double x = p.abscisse(), y = p.ordonnee();
+		int c = (int)Math.floor((x-xmin)/taille), l = (int)Math.floor((y-ymin)/taille);
+		if(c<0 || c>=nbColonnes || l<0 || l>=nbLignes) return false;
+		int cellule = l*nbColonnes+c;
+		for(int k=0; k<nbParCellule[cellule]; k++) if(contient(cellules[cellule][k],x,y)) return true;
+		return false;
+	}
+	/**
+	 * Recherche le premier obstacle rencontré par le déplacement de (x,y) sur une distance d
+	 * selon la direction unitaire (ux,uy). Un obstacle contenant strictement le point de départ
+	 * est ignoré afin que la tortue puisse en sortir ; longer le bord d'un obstacle n'est pas
+	 * une collision.
+	 * @param x l'abscisse de départ
+	 * @param y l'ordonnée de départ
+	 * @param ux l'abscisse de la direction
+	 * @param uy l'ordonnée de la direction
+	 * @param d la distance à parcourir
+	 * @param res le résultat, renseigné s'il y a collision
+	 * @return true s'il y a collision avant d'avoir parcouru d
+	 * @require argumentValide : d>=0 && res!=null
+	 */
+	public boolean impact(double x, double y, double ux, double uy, double d, Impact res) {
+		double meilleur = d;
+		int trouve = -1;
+		// portion du déplacement située dans l'étendue de la grille
+		double t0 = 0, t1 = d;
+		double gx0 = xmin, gx1 = xmin+(double)nbColonnes*taille, gy0 = ymin, gy1 = ymin+(double)nbLignes*taille;
+		if(ux!=0) {
+			double a = (gx0-x)/ux, b = (gx1-x)/ux;
+			t0 = Math.max(t0, Math.min(a,b)); t1 = Math.min(t1, Math.max(a,b));
+		}else if(x<gx0 || x>gx1) t1 = -1;
+		if(uy!=0) {
+			double a = (gy0-y)/uy, b = (gy1-y)/uy;
+			t0 = Math.max(t0, Math.min(a,b)); t1 = Math.min(t1, Math.max(a,b));
+		}else if(y<gy0 || y>gy1) t1 = -1;
+		if(t0<=t1) {
+			int c = Math.min(nbColonnes-1, Math.max(0, (int)Math.floor((x+t0*ux-xmin)/taille)));
+			int l = Math.min(nbLignes-1, Math.max(0, (int)Math.floor((y+t0*uy-ymin)/taille)));
+			int pasC = ux>0 ? 1 : -1, pasL = uy>0 ? 1 : -1;
+			double tMaxC = ux>0 ? (xmin+(c+1.0)*taille-x)/ux : ux<0 ? (xmin+(double)c*taille-x)/ux : Double.POSITIVE_INFINITY;
+			double tMaxL = uy>0 ? (ymin+(l+1.0)*taille-y)/uy : uy<0 ? (ymin+(double)l*taille-y)/uy : Double.POSITIVE_INFINITY;
+			double deltaC = ux!=0 ? taille/Math.abs(ux) : Double.POSITIVE_INFINITY;
+			double deltaL = uy!=0 ? taille/Math.abs(uy) : Double.POSITIVE_INFINITY;
+			while(true) {
+				int cellule = l*nbColonnes+c;
+				for(int k=0; k<nbParCellule[cellule]; k++) {
+					int n = cellules[cellule][k];
+					double t = entree(n,x,y,ux,uy,meilleur);
+					if(t<meilleur) {meilleur=t; trouve=n;}
+				}
+				double sortie = Math.min(tMaxC, tMaxL);
+				if(meilleur<=sortie || sortie>=t1) break;
+				if(tMaxC<tMaxL) {
+					c+=pasC; tMaxC+=deltaC;
+					if(c<0 || c>=nbColonnes) break;
+				}else{
+					l+=pasL; tMaxL+=deltaL;
+					if(l<0 || l>=nbLignes) break;
+				}
+			}
+		}
+		if(trouve<0) return false;
+		res.distance=meilleur;
+		res.obstacle=trouve;
+		normale(trouve,x,y,ux,uy,res);
+		return true;
+	}
+	/**
+	 * Détermine la face de l'obstacle n par laquelle entre le déplacement : celle de la
+	 * tranche franchie en dernier
+	 */
+	protected void normale(int n, double x, double y, double ux, double uy, Impact res) {
+		double ax = cadres[4*n], ay = cadres[4*n+1], bx = ax+cadres[4*n+2], by = ay+cadres[4*n+3];
+		double tx = ux>0 ? (ax-x)/ux : ux<0 ? (bx-x)/ux : Double.NEGATIVE_INFINITY;
+		double ty = uy>0 ? (ay-y)/uy : uy<0 ? (by-y)/uy : Double.NEGATIVE_INFINITY;
+		double ecart = 1e-9*Math.max(1, res.distance);
+		res.normaleX = tx>=ty-ecart ? (ux>0 ? -1 : 1) : 0;
+		res.normaleY = ty>=tx-ecart ? (uy>0 ? -1 : 1) : 0;
+	}
+	/**
+	 * Calcule, par la méthode des tranches, la distance à laquelle le déplacement entre dans l'obstacle n
+	 * @return la distance d'entrée si elle est inférieure à limite, l'infini sinon
+	 */
+	protected double entree(int n, double x, double y, double ux, double uy, double limite) {
+		double ax = cadres[4*n], ay = cadres[4*n+1], bx = ax+cadres[4*n+2], by = ay+cadres[4*n+3];
+		if(x>ax && x<bx && y>ay && y<by) return Double.POSITIVE_INFINITY;
+		double tmin = 0, tmax = limite;
+		if(ux!=0) {
+			double a = (ax-x)/ux, b = (bx-x)/ux;
+			tmin = Math.max(tmin, Math.min(a,b)); tmax = Math.min(tmax, Math.max(a,b));
+		}else if(x<=ax || x>=bx) return Double.POSITIVE_INFINITY;
+		if(uy!=0) {
+			double a = (ay-y)/uy, b = (by-y)/uy;
+			tmin = Math.max(tmin, Math.min(a,b)); tmax = Math.min(tmax, Math.max(a,b));
+		}else if(y<=ay || y>=by) return Double.POSITIVE_INFINITY;
+		return tmin<tmax ? tmin : Double.POSITIVE_INFINITY;
+	}
+	/** @return true si l'obstacle n contient (x,y) */
+	protected boolean contient(int n, double x, double y) {
+		return x>=cadres[4*n] && x<=cadres[4*n]+cadres[4*n+2] && y>=cadres[4*n+1] && y<=cadres[4*n+1]+cadres[4*n+3];
+	}
+	/**
+	 * Reconstruit la grille sur une nouvelle étendue et y range tous les obstacles ;
+	 * le côté des cellules est doublé tant que la grille en compterait trop.
+	 */
+	protected void quadriller(int xmin, int ymin, int largeur, int hauteur, int taille) {
+		while((largeur+taille-1L)/taille*((hauteur+taille-1L)/taille) > MAX_CELLULES) taille*=2;
+		this.xmin=xmin; this.ymin=ymin; this.taille=taille;
+		nbColonnes = (int)((largeur+taille-1L)/taille);
+		nbLignes = (int)((hauteur+taille-1L)/taille);
+		cellules = new int[nbColonnes*nbLignes][];
+		nbParCellule = new int[nbColonnes*nbLignes];
+		inserer(0, nbObstacles);
+	}
+	/** Assure la place de nb obstacles supplémentaires */
+	protected void reserver(int nb) {
+		if(nbObstacles+nb<=obstacles.length) return;
+		int capacite = (int)Math.min(Integer.MAX_VALUE/4, Math.max(2L*obstacles.length, (long)nbObstacles+nb));
+		obstacles = Arrays.copyOf(obstacles, capacite);
+		cadres = Arrays.copyOf(cadres, 4*capacite);
+	}
+	/**
+	 * Agrandit la grille, et y range tous les obstacles, si elle ne couvre pas une étendue
+	 * @param x0 l'abscisse du coin inférieur de l'étendue
+	 * @param y0 l'ordonnée du coin inférieur de l'étendue
+	 * @param x1 l'abscisse du coin supérieur de l'étendue
+	 * @param y1 l'ordonnée du coin supérieur de l'étendue
+	 * @return true si la grille a été reconstruite
+	 */
+	protected boolean etendre(long x0, long y0, long x1, long y1) {
+		long xmax = xmin+(long)nbColonnes*taille, ymax = ymin+(long)nbLignes*taille;
+		if(x0>=xmin && y0>=ymin && x1<xmax && y1<ymax) return false;
+		// agrandissement de l'étendue de moitié au moins de chaque côté débordé
+		long nx0 = Math.min(xmin, x0), ny0 = Math.min(ymin, y0);
+		long nx1 = Math.max(xmax, x1+1), ny1 = Math.max(ymax, y1+1);
+		long dx = xmax-xmin, dy = ymax-ymin;
+		if(nx0<xmin) nx0 = Math.min(nx0, xmin-dx/2);
+		if(ny0<ymin) ny0 = Math.min(ny0, ymin-dy/2);
+		if(nx1>xmax) nx1 = Math.max(nx1, xmax+dx/2);
+		if(ny1>ymax) ny1 = Math.max(ny1, ymax+dy/2);
+		nx0 = Math.max(nx0, Integer.MIN_VALUE); ny0 = Math.max(ny0, Integer.MIN_VALUE);
+		quadriller((int)nx0,(int)ny0,(int)Math.min(nx1-nx0,Integer.MAX_VALUE),(int)Math.min(ny1-ny0,Integer.MAX_VALUE),taille);
+		return true;
+	}
+	/**
+	 * Range les obstacles debut à fin exclue dans les cellules que leurs cadres recouvrent.
+	 * Les cellules sont dénombrées avant d'être remplies : chacune est agrandie au plus une fois.
+	 */
+	protected void inserer(int debut, int fin) {
+		if(fin-debut<=1) {
+			if(fin>debut) inserer(debut);
+			return;
+		}
+		int[] ajouts = new int[cellules.length];
+		for(int n=debut; n<fin; n++) {
+			int x = cadres[4*n], y = cadres[4*n+1];
+			int c0 = colonne(x), c1 = colonne(x+cadres[4*n+2]), l0 = ligne(y), l1 = ligne(y+cadres[4*n+3]);
+			for(int l=l0; l<=l1; l++) for(int c=c0; c<=c1; c++) ajouts[l*nbColonnes+c]++;
+		}
+		for(int cellule=0; cellule<ajouts.length; cellule++) {
+			if(ajouts[cellule]==0) continue;
+			int besoin = nbParCellule[cellule]+ajouts[cellule];
+			if(cellules[cellule]==null) cellules[cellule] = new int[besoin];
+			else if(cellules[cellule].length<besoin) cellules[cellule] = Arrays.copyOf(cellules[cellule], besoin);
+		}
+		for(int n=debut; n<fin; n++) {
+			int x = cadres[4*n], y = cadres[4*n+1];
+			int c0 = colonne(x), c1 = colonne(x+cadres[4*n+2]), l0 = ligne(y), l1 = ligne(y+cadres[4*n+3]);
+			for(int l=l0; l<=l1; l++) for(int c=c0; c<=c1; c++) {
+				int cellule = l*nbColonnes+c;
+				cellules[cellule][nbParCellule[cellule]++]=n;
+			}
+		}
+	}
+	/** Range l'obstacle n dans toutes les cellules que son cadre recouvre */
+	protected void inserer(int n) {
+		int x = cadres[4*n], y = cadres[4*n+1];
+		int c0 = colonne(x), c1 = colonne(x+cadres[4*n+2]), l0 = ligne(y), l1 = ligne(y+cadres[4*n+3]);
+		for(int l=l0; l<=l1; l++) for(int c=c0; c<=c1; c++) ranger(l*nbColonnes+c, n);
+	}
+	/** Range l'obstacle n dans une cellule */
+	protected void ranger(int cellule, int n) {
+		int[] contenu = cellules[cellule];
+		if(contenu==null) contenu = cellules[cellule] = new int[4];
+		else if(nbParCellule[cellule]==contenu.length) contenu = cellules[cellule] = Arrays.copyOf(contenu, 2*contenu.length);
+		contenu[nbParCellule[cellule]++]=n;
+	}
+	/** @return la colonne contenant l'abscisse x, ramenée dans la grille */
+	protected int colonne(int x) {return Math.min(nbColonnes-1, Math.max(0, Math.floorDiv(x-xmin, taille)));}
+	/** @return la ligne contenant l'ordonnée y, ramenée dans la grille */
+	protected int ligne(int y) {return Math.min(nbLignes-1, Math.max(0, Math.floorDiv(y-ymin, taille)));}
+}
@@ -0,0 +1,104 @@
+package jus.aoo.turtle;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Enregistre et charge les obstacles d'un registre dans un fichier de scène binaire.
+ * Le format, petit-boutiste, est :
+ * <UL>
+ *   <LI>un en-tête : MAGIQUE (int), VERSION (int) puis le nombre d'obstacles (int) ;</LI>
+ *   <LI>les cadres des obstacles, dans l'ordre d'ajout : abscisse et ordonnée du sommet
+ *   le plus petit, largeur et hauteur (int).</LI>
+ * </UL>
+ * Le chargement projette le fichier en mémoire et recopie les cadres d'un bloc ; ils sont
+ * rangés en une seule fois dans la grille du registre, sans créer d'objet par obstacle.
+ * @version 1.0
+ * @see RegistreObstacles
+ */
+public class SceneObstacles {
+	/** la signature d'un fichier de scène, "OBST" */
+	public static final int MAGIQUE = 0x5453424f;
+	/** la version du format */
+	public static final int VERSION = 1;
+	/** la taille de l'en-tête, en octets */
+	public static final int EN_TETE = 12;
+	/** le nombre d'obstacles lus ou écrits d'un bloc */
+	protected static final int OBSTACLES_PAR_BLOC = 1<<16;
+	/**
+	 * Enregistre les obstacles d'un registre
+	 * @param obstacles le registre
+	 * @param fichier le fichier, remplacé s'il existe
+	 * @return le nombre d'obstacles enregistrés
+	 * @throws IOException si l'écriture échoue
+	 */
+	public static int enregistrer(RegistreObstacles obstacles, Path fichier) throws IOException {
+		int nb;
+		int[] cadres;
+		synchronized(obstacles) {
+			nb = obstacles.nbObstacles;
+			cadres = obstacles.cadres;
+		}
+		// les cadres des nb premiers obstacles ne sont plus modifiés, même par un ajout ultérieur
+		try(FileChannel canal = ExportTrace.ouvrir(fichier)){
+			ByteBuffer tampon = ByteBuffer.allocateDirect(16*OBSTACLES_PAR_BLOC).order(ByteOrder.LITTLE_ENDIAN);
+			tampon.putInt(MAGIQUE).putInt(VERSION).putInt(nb);
+			ecrire(canal, tampon);
+			for(int n=0; n<nb; n+=OBSTACLES_PAR_BLOC) {
+				int bloc = Math.min(OBSTACLES_PAR_BLOC, nb-n);
+				tampon.asIntBuffer().put(cadres, 4*n, 4*bloc);
+				tampon.position(16*bloc);
+				ecrire(canal, tampon);
+			}
+		}
+		return nb;
+	}
+	/**
+	 * Charge les obstacles d'un fichier de scène dans un registre
+	 * @param fichier le fichier
+	 * @param obstacles le registre, qui conserve ses obstacles
+	 * @return le nombre d'obstacles chargés
+	 * @throws IOException si le fichier ne peut être lu ou n'est pas un fichier de scène complet
+	 */
+	public static int charger(Path fichier, RegistreObstacles obstacles) throws IOException {
+		int[] cadres;
+		try(FileChannel canal = FileChannel.open(fichier,StandardOpenOption.READ)){
+			long taille = canal.size();
+			if(taille<EN_TETE) throw new IOException("fichier de scène tronqué : "+fichier);
+			if(taille>Integer.MAX_VALUE) throw new IOException("fichier de scène trop grand : "+fichier);
+			ByteBuffer fenetre = canal.map(FileChannel.MapMode.READ_ONLY, 0, taille).order(ByteOrder.LITTLE_ENDIAN);
+			if(fenetre.getInt(0)!=MAGIQUE) throw new IOException("pas un fichier de scène : "+fichier);
+			if(fenetre.getInt(4)!=VERSION) throw new IOException("version de fichier de scène inconnue : "+fenetre.getInt(4));
+			int nb = fenetre.getInt(8);
+			if(nb<0 || taille!=EN_TETE+16L*nb) throw new IOException("fichier de scène tronqué : "+fichier);
+			cadres = new int[4*nb];
+			fenetre.position(EN_TETE);
+			IntBuffer entiers = fenetre.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+			entiers.get(cadres);
+		}
+		obstacles.ajouter(cadres, 0, cadres.length/4);
+		return cadres.length/4;
+	}
+	/**
+	 * Charge un fichier de scène dans un nouveau registre
+	 * @param fichier le fichier
+	 * @return le registre des obstacles du fichier
+	 * @throws IOException si le fichier ne peut être lu ou n'est pas un fichier de scène complet
+	 */
+	public static RegistreObstacles charger(Path fichier) throws IOException {
+		RegistreObstacles obstacles = new RegistreObstacles();
+		charger(fichier, obstacles);
+		return obstacles;
+	}
+	/** Écrit le contenu d'un tampon dans le fichier puis le vide */
+	protected static void ecrire(FileChannel canal, ByteBuffer tampon) throws IOException {
+		tampon.flip();
+		while(tampon.hasRemaining()) canal.write(tampon);
+		tampon.clear();
+	}
+}
@@ -0,0 +1,256 @@
+package jus.aoo.turtle;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import jus.util.assertion.Require;
+
+/**
+ * Service local de rendu de programmes Logo, pour les autres applications de la machine.
+ * Il repose sur le serveur HTTP du JDK et n'écoute que l'adresse de bouclage.
+ * Une requête POST /rendu?largeur=l&amp;hauteur=h porte le texte du programme (UTF-8) ; la
+ * réponse est l'image PNG du dessin, la plume étant baissée au départ, ou le message
+ * d'erreur (400) si le programme est incorrect ou trop long.
+ * Chaque requête est traitée par son propre fil, virtuel si la plate-forme en dispose, et
+ * rendue par son propre moteur sans affichage (MoteurTortue, TraceCompacte, ExportTrace).
+ * Les rendus simultanés sont limités par un sémaphore ; au-delà d'un nombre de requêtes en
+ * cours, ou si aucun rendu ne se libère à temps, la requête est refusée (503, Retry-After) :
+ * le client est invité à réessayer au lieu d'encombrer la mémoire.
+ * L'exécution d'un programme est bornée en commandes de la tortue, en instructions, en
+ * profondeur d'appels et en durée : un programme qui dépasse l'une de ces bornes est refusé
+ * (400) et libère son rendu.
+ * @version 1.0
+ * @see CompilateurLogo
+ * @see ExportTrace
+ */
+public class ServiceRendu {
+	public static final int PORT = 8642;                 // le port par défaut
+	public static final String CHEMIN = "/rendu";        // le chemin du service
+	protected static final int MAX_OCTETS = 1<<20;       // la taille maximale d'un programme
+	protected static final int MAX_COTE = 4096;          // la largeur et la hauteur maximales d'une image
+	protected static final int MAX_PIXELS = 1<<22;       // le nombre maximal de pixels d'une image
+	protected static final int MAX_COMMANDES = 1<<20;    // le nombre maximal de commandes exécutées par un programme
+	protected static final long MAX_INSTRUCTIONS = 1L<<28; // le nombre maximal d'instructions exécutées par un programme
+	protected static final int MAX_PROFONDEUR = 1<<14;   // le nombre maximal d'appels imbriqués d'un programme
+	protected static final long DELAI = 5000;            // la durée maximale de l'exécution d'un programme, en ms
+	protected static final int COTE = 400;               // la largeur et la hauteur par défaut
+	protected static final int MAX_EN_COURS = 10000;     // le nombre maximal par défaut de requêtes en cours
+	protected static final int MAX_EN_COURS_SANS_VIRTUELS = 512; // le même, sans fils virtuels
+	protected static final long ATTENTE = 10000;         // le délai d'attente d'un rendu libre, en ms
+	protected static final int FILE_CONNEXIONS = 1024;   // la longueur minimale de la file des connexions à accepter
+	protected HttpServer serveur;
+	protected ExecutorService executeur; // exécute les requêtes
+	protected Semaphore rendus;          // borne les rendus simultanés
+	protected int maxEnCours;            // le nombre maximal de requêtes en cours
+	protected final AtomicInteger enCours = new AtomicInteger(); // le nombre de requêtes en cours
+	/**
+	 * Construction d'un service sur l'adresse de bouclage, non démarré
+	 * @param port le port, 0 pour un port libre quelconque
+	 * @param nbRendus le nombre maximal de rendus simultanés
+	 * @param maxEnCours le nombre maximal de requêtes en cours, rendues ou en attente d'un rendu
+	 * @throws IOException si le port ne peut être ouvert
+	 * @require argumentValide : nbRendus>0 && maxEnCours>=nbRendus
+	 */
+	public ServiceRendu(int port, int nbRendus, int maxEnCours) throws IOException {
+		if(nbRendus<=0 || maxEnCours<nbRendus) throw new Require("argumentValide");
+		this.maxEnCours=maxEnCours;
+		rendus = new Semaphore(nbRendus);
+		executeur = executeur();
+		serveur = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(),port),Math.max(maxEnCours,FILE_CONNEXIONS));
+		serveur.setExecutor(executeur);
+		serveur.createContext(CHEMIN, new HttpHandler(){
+			public void handle(HttpExchange e) throws IOException {
+				try{traiter(e);}finally{e.close();}
+			}
+		});
+	}
+	/** Démarre le service */
+	public void demarrer() {serveur.start();}
+	/**
+	 * Arrête le service
+	 * @param delai le délai laissé aux requêtes en cours, en seconde
+	 */
+	public void arreter(int delai) {
+		serveur.stop(delai);
+		executeur.shutdown();
+	}
+	/** @return l'adresse du service */
+	public InetSocketAddress adresse() {return serveur.getAddress();}
+	/**
+	 * Rend un programme Logo en image PNG
+	 * @param source le texte du programme
+	 * @param largeur la largeur de l'image
+	 * @param hauteur la hauteur de l'image
+	 * @return le contenu du fichier PNG
+	 * @throws ErreurLogo si le programme est incorrect ou dépasse MAX_COMMANDES commandes,
+	 * MAX_INSTRUCTIONS instructions, MAX_PROFONDEUR appels imbriqués ou DELAI ms
+	 * @require dimensionsValides : largeur>0 && hauteur>0
+	 */
+	public static byte[] rendre(String source, int largeur, int hauteur) {
+		ProgrammeLogo programme = CompilateurLogo.compiler(source);
+		TraceCompacte trace = new TraceCompacte();
+		final MoteurTortue moteur = new MoteurTortue(trace,largeur,hauteur);
+		moteur.baisser();
+		// chaque commande trace au plus un segment : les borner borne aussi la mémoire de la trace
+		programme.executer(new _Tortue(){
+			int nbCommandes;
+			public void avancer(double d) {compter(); moteur.avancer(d);}
+			public void reculer(double d) {compter(); moteur.reculer(d);}
+			public void droite(double a) {compter(); moteur.droite(a);}
+			public void gauche(double a) {compter(); moteur.gauche(a);}
+			public void lever() {compter(); moteur.lever();}
+			public void baisser() {compter(); moteur.baisser();}
+			public void allerA(double dx, double dy) {compter(); moteur.allerA(dx,dy);}
+			void compter() {
+				if(++nbCommandes>MAX_COMMANDES) throw new ErreurLogo("programme trop long : plus de "+MAX_COMMANDES+" commandes");
+			}
+		},MAX_INSTRUCTIONS,MAX_PROFONDEUR,DELAI);
+		ByteArrayOutputStream out = new ByteArrayOutputStream(1<<14);
+		try{
+			ImageIO.write(new ExportTrace(largeur,hauteur).image(trace,null),"png",out);
+		}catch(IOException e){
+			throw new IllegalStateException(e);
+		}
+		return out.toByteArray();
+	}
+	/** Traite une requête */
+	protected void traiter(HttpExchange e) throws IOException {
+		if(!"POST".equals(e.getRequestMethod())) {
+			e.getResponseHeaders().set("Allow","POST");
+			repondre(e,405,"méthode POST attendue");
+			return;
+		}
+		int largeur, hauteur;
+		try{
+			largeur = parametre(e,"largeur");
+			hauteur = parametre(e,"hauteur");
+		}catch(NumberFormatException x){
+			repondre(e,400,"largeur et hauteur entières attendues");
+			return;
+		}
+		if(largeur<=0 || hauteur<=0 || largeur>MAX_COTE || hauteur>MAX_COTE || (long)largeur*hauteur>MAX_PIXELS) {
+			repondre(e,400,"dimensions hors limites : au plus "+MAX_COTE+" de côté et "+MAX_PIXELS+" pixels");
+			return;
+		}
+		String source = lire(e.getRequestBody());
+		if(source==null) {
+			repondre(e,413,"programme de plus de "+MAX_OCTETS+" octets");
+			return;
+		}
+		if(enCours.incrementAndGet()>maxEnCours) {
+			enCours.decrementAndGet();
+			refuser(e);
+			return;
+		}
+		try{
+			if(!rendus.tryAcquire(ATTENTE,TimeUnit.MILLISECONDS)) {refuser(e); return;}
+			byte[] png;
+			try{
+				png = rendre(source,largeur,hauteur);
+			}finally{
+				rendus.release();
+			}
+			e.getResponseHeaders().set("Content-Type","image/png");
+			e.sendResponseHeaders(200,png.length);
+			try(OutputStream out = e.getResponseBody()){out.write(png);}
+		}catch(ErreurLogo x){
+			repondre(e,400,x.getMessage());
+		}catch(InterruptedException x){
+			Thread.currentThread().interrupt();
+			refuser(e);
+		}catch(RuntimeException x){
+			repondre(e,500,String.valueOf(x));
+		}finally{
+			enCours.decrementAndGet();
+		}
+	}
+	/** Refuse une requête faute de capacité, le client étant invité à réessayer */
+	protected void refuser(HttpExchange e) throws IOException {
+		e.getResponseHeaders().set("Retry-After","1");
+		repondre(e,503,"service saturé, réessayer");
+	}
+	/** Répond par un message texte */
+	protected static void repondre(HttpExchange e, int code, String message) throws IOException {
+		byte[] corps = message.getBytes(StandardCharsets.UTF_8);
+		e.getResponseHeaders().set("Content-Type","text/plain; charset=utf-8");
+		e.sendResponseHeaders(code,corps.length);
+		try(OutputStream out = e.getResponseBody()){out.write(corps);}
+	}
+	/**
+	 * Lit le paramètre entier d'une requête
+	 * @return sa valeur, COTE s'il est absent
+	 */
+	protected static int parametre(HttpExchange e, String nom) {
+		String requete = e.getRequestURI().getRawQuery();
+		if(requete!=null)
+			for(String p : requete.split("&"))
+				if(p.startsWith(nom+"=")) return Integer.parseInt(p.substring(nom.length()+1));
+		return COTE;
+	}
+	/**
+	 * Lit le texte d'un programme
+	 * @return le texte, null s'il dépasse MAX_OCTETS
+	 */
+	protected static String lire(InputStream in) throws IOException {
+		ByteArrayOutputStream res = new ByteArrayOutputStream();
+		byte[] tampon = new byte[8192];
+		for(int n; (n=in.read(tampon))>0; ) {
+			res.write(tampon,0,n);
+			if(res.size()>MAX_OCTETS) return null;
+		}
+		return new String(res.toByteArray(),StandardCharsets.UTF_8);
+	}
+	/**
+	 * Indique si la plate-forme dispose des fils virtuels (Java 21)
+	 * @return true si les requêtes sont traitées par des fils virtuels
+	 */
+	public static boolean filsVirtuels() {
+		try{
+			Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return true;
+		}catch(NoSuchMethodException e){
+			return false;
+		}
+	}
+	/**
+	 * Crée l'exécuteur des requêtes : un fil virtuel par requête si la plate-forme en dispose,
+	 * sinon des fils ordinaires réutilisés d'une requête à l'autre. Le fil du serveur ne doit
+	 * jamais attendre : une requête excédentaire est refusée par son propre fil.
+	 */
+	protected static ExecutorService executeur() {
+		try{
+			return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		}catch(ReflectiveOperationException e){
+			return Executors.newCachedThreadPool();
+		}
+	}
+	/**
+	 * Lance le service
+	 * @param args le port, PORT par défaut, puis le nombre de rendus simultanés, le nombre de processeurs par défaut
+	 */
+	public static void main(String[] args) throws IOException {
+		System.setProperty("java.awt.headless","true");
+		int port = args.length>0 ? Integer.parseInt(args[0]) : PORT;
+		int nbRendus = args.length>1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		// sans fils virtuels, chaque requête en cours occupe un fil ordinaire
+		ServiceRendu service = new ServiceRendu(port,nbRendus,Math.max(nbRendus,filsVirtuels() ? MAX_EN_COURS : MAX_EN_COURS_SANS_VIRTUELS));
+		service.demarrer();
+		System.out.println("service de rendu sur http://"+service.adresse().getHostString()+":"+service.adresse().getPort()+CHEMIN);
+	}
+}
@@ -0,0 +1,99 @@
+package jus.aoo.turtle;
+
+/**
+ * Simplifie à la volée une suite de segments avant de la transmettre à un autre traceur.
+ * Les segments jointifs sont fusionnés tant que tous les points fusionnés restent à moins
+ * de tolerance du segment qui les remplace : les segments colinéaires consécutifs (cap
+ * inchangé d'un avancer au suivant) n'en font plus qu'un, et les segments plus courts que
+ * la tolérance sont absorbés par leurs voisins.
+ * Chaque segment transmis part d'un point d'ancrage ; le secteur angulaire des directions
+ * qui passent à moins de tolerance de chaque point absorbé est maintenu (algorithme du
+ * fourreau), ce qui ne demande ni mémoire des points absorbés ni fonction trigonométrique.
+ * @version 1.0
+ * @see FigureTrace
+ */
+public class Simplificateur implements _Traceur {
+	protected _Traceur aval;   // reçoit les segments simplifiés
+	protected double tolerance; // l'écart maximal entre un point absorbé et le segment transmis
+	protected boolean enCours; // un segment est en attente de transmission
+	protected double ax, ay;   // l'origine du segment en attente
+	protected double bx, by;   // son extrémité
+	protected double rmax;     // la plus grande distance de l'origine à un point absorbé
+	protected boolean oriente; // le secteur des directions admises est établi
+	protected double gx, gy, dx, dy; // les bords gauche et droit de ce secteur, unitaires
+	protected int nbTransmis;  // le nombre de segments transmis
+	/**
+	 * Construction d'un simplificateur
+	 * @param aval le traceur recevant les segments simplifiés
+	 * @param tolerance l'écart maximal admis, dans les unités des segments
+	 * @require argumentValide : aval!=null && tolerance>=0
+	 */
+	public Simplificateur(_Traceur aval, double tolerance) {
+		this.aval=aval;
+		this.tolerance=tolerance;
+	}
+	/* (non-Javadoc)
+	 * @see jus.aoo.turtle._Traceur#trace(double, double, double, double)
+	 */
+	public void trace(double x1, double y1, double x2, double y2) {
+		if(!enCours || x1!=bx || y1!=by) {
+			terminer();
+			ancrer(x1,y1);
+			enCours = true;
+		}
+		if(!absorber(x2,y2)) {
+			transmettre();
+			ancrer(bx,by);
+			absorber(x2,y2);
+		}
+	}
+	/** Transmet le segment en attente ; le segment suivant ne lui sera pas fusionné */
+	public void terminer() {
+		if(enCours) transmettre();
+		enCours = false;
+	}
+	/** @return le nombre de segments transmis */
+	public int nbTransmis() {return nbTransmis;}
+	/** @return la tolérance */
+	public double tolerance() {return tolerance;}
+	/** Commence un segment en (x,y) */
+	protected void ancrer(double x, double y) {
+		ax=bx=x; ay=by=y;
+		rmax=0;
+		oriente=false;
+	}
+	/** Transmet le segment en attente */
+	protected void transmettre() {
+		aval.trace(ax,ay,bx,by);
+		nbTransmis++;
+	}
+	/**
+	 * Prolonge le segment en attente jusqu'au point c si tous les points absorbés restent
+	 * à moins de tolerance du segment prolongé
+	 * @param cx l'abscisse du point
+	 * @param cy l'ordonnée du point
+	 * @return false si le point ne peut être absorbé, le segment en attente étant inchangé
+	 */
+	protected boolean absorber(double cx, double cy) {
+		double vx = cx-ax, vy = cy-ay, r = Math.sqrt(vx*vx+vy*vy);
+		if(r<=tolerance && rmax<=tolerance) {
+			// tous les points sont proches de l'origine : aucune direction n'est exclue
+			bx=cx; by=cy;
+			rmax=Math.max(rmax,r);
+			return true;
+		}
+		// un retour en arrière laisserait les points les plus éloignés hors du segment
+		if(r<rmax) return false;
+		vx/=r; vy/=r;
+		if(oriente && (dx*vy-dy*vx<0 || vx*gy-vy*gx<0)) return false;
+		// le secteur des directions passant à moins de tolerance de c : demi-angle asin(tolerance/r)
+		double s = tolerance/r, c = Math.sqrt(1-s*s);
+		double pgx = c*vx-s*vy, pgy = c*vy+s*vx, pdx = c*vx+s*vy, pdy = c*vy-s*vx;
+		if(!oriente || gx*pgy-gy*pgx<0) {gx=pgx; gy=pgy;}
+		if(!oriente || dx*pdy-dy*pdx>0) {dx=pdx; dy=pdy;}
+		oriente = true;
+		bx=cx; by=cy;
+		rmax=r;
+		return true;
+	}
+}
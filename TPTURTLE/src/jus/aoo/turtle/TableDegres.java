@@ -0,0 +1,38 @@
+package jus.aoo.turtle;
+
+/**
+ * Table des cosinus et sinus des angles entiers en degré, de 0 à 359.
+ * Seul le premier quadrant est calculé ; les autres s'en déduisent par symétrie,
+ * si bien que les valeurs des multiples de 90 degrés sont exactes et que
+ * cos²+sin² vaut 1 à un ulp près pour chaque entrée.
+ * @version 1.0
+ * @see MoteurTortue
+ */
+public class TableDegres {
+	/** les cosinus des angles de 0 à 359 degrés */
+	public static final double[] COS = new double[360];
+	/** les sinus des angles de 0 à 359 degrés */
+	public static final double[] SIN = new double[360];
+	static {
+		COS[0]=1; SIN[0]=0;
+		for(int a=1; a<90; a++) {
+			COS[a] = Math.cos(Math.toRadians(a));
+			SIN[a] = Math.sin(Math.toRadians(a));
+		}
+		for(int a=0; a<90; a++) {
+			// 0-v plutôt que -v : pas de zéro négatif dans la table
+			COS[a+90]  = 0-SIN[a]; SIN[a+90]  =   COS[a];
+			COS[a+180] = 0-COS[a]; SIN[a+180] = 0-SIN[a];
+			COS[a+270] =   SIN[a]; SIN[a+270] = 0-COS[a];
+		}
+	}
+	/**
+	 * Ramène un angle entier dans l'intervalle [0,360[
+	 * @param a l'angle en degré
+	 * @return l'indice de l'angle dans la table
+	 */
+	public static int indice(int a) {
+		a %= 360;
+		return a<0 ? a+360 : a;
+	}
+}
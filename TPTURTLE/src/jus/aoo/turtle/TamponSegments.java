@@ -0,0 +1,54 @@
+package jus.aoo.turtle;
+
+import java.util.Arrays;
+
+import jus.aoo.geometrie.DrawingSpace;
+import jus.aoo.geometrie.Point;
+import jus.aoo.geometrie.Segment;
+
+/**
+ * Accumule des segments dans un tableau de coordonnées avant de les transmettre
+ * en un seul lot à un espace de dessin.
+ * @version 1.0
+ * @see EspaceTortue#ajouter(double[], int)
+ */
+public class TamponSegments implements _Traceur {
+	protected double[] coordonnees; // les quadruplets (x1,y1,x2,y2) en attente
+	protected int nbSegments;       // le nombre de segments en attente
+	/** Construction d'un tampon vide */
+	public TamponSegments() {coordonnees = new double[4*256];}
+	/* (non-Javadoc)
+	 * @see jus.aoo.turtle._Traceur#trace(double, double, double, double)
+	 */
+	public synchronized void trace(double x1, double y1, double x2, double y2) {
+		int i = 4*nbSegments;
+		if(i==coordonnees.length) coordonnees = Arrays.copyOf(coordonnees, 2*i);
+		coordonnees[i]=x1; coordonnees[i+1]=y1; coordonnees[i+2]=x2; coordonnees[i+3]=y2;
+		nbSegments++;
+	}
+	/**
+	 * Restitue le nombre de segments en attente
+	 * @return le nombre de segments
+	 */
+	public synchronized int nbSegments() {return nbSegments;}
+	/**
+	 * Transmet les segments en attente à un espace de dessin puis les oublie.
+	 * Un EspaceTortue les reçoit en un seul lot.
+	 * @param feuille l'espace de dessin
+	 * @return true si des segments ont été transmis
+	 * @require argumentValide : feuille!=null
+	 */
+	public synchronized boolean vider(DrawingSpace feuille) {
+		if(nbSegments==0) return false;
+		if(feuille instanceof EspaceTortue) {
+			((EspaceTortue)feuille).ajouter(coordonnees,nbSegments);
+		}else{
+			for(int i=0; i<4*nbSegments; i+=4)
+				feuille.add(new Segment(new Point(coordonnees[i],coordonnees[i+1]),new Point(coordonnees[i+2],coordonnees[i+3])));
+		}
+		nbSegments=0;
+		return true;
+	}
+	/** Oublie les segments en attente */
+	public synchronized void clear() {nbSegments=0;}
+}
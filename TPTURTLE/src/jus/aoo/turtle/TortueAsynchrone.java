@@ -0,0 +1,204 @@
+package jus.aoo.turtle;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.swing.Timer;
+
+/**
+ * Exécute hors du fil de Swing les commandes destinées à une {@link Turtle}.
+ * Les commandes reçues, depuis un nombre quelconque de fils, sont rangées dans une file
+ * circulaire bornée sans verrou ; un fil dédié, seul consommateur, les exécute sur le
+ * moteur de la tortue, à pleine vitesse, et les inscrit à son journal s'il est actif.
+ * Le moteur publie régulièrement un relevé de son état ; une horloge Swing l'affiche
+ * au plus PERIODE fois par seconde, avec les segments tracés entre-temps.
+ * Tant que l'exécution asynchrone est active, la tortue ne doit pas être commandée
+ * directement. Une file pleine fait attendre les fils qui postent.
+ * @version 1.0
+ * @see Turtle#setDiffere(boolean)
+ */
+public class TortueAsynchrone implements _Tortue {
+	protected static final int PERIODE = 1000/60; // l'intervalle entre deux affichages, en ms
+	protected static final int RELEVE = 1024;      // le nombre de commandes entre deux relevés de l'état
+	protected final Turtle turtle;        // la tortue commandée
+	protected final MoteurTortue moteur;  // son moteur, modifié par le seul consommateur
+	protected final Journal journal;      // son journal, null s'il est désactivé
+	protected final int masque;           // la capacité de la file moins un, la capacité étant une puissance de 2
+	protected final AtomicLongArray sequences; // pour chaque case : r+1 si la commande de rang r y est prête, r si la case attend la commande de rang r
+	protected final byte[] codes;         // les codes d'opération
+	protected final double[] operandes;   // les deux opérandes de chaque case
+	protected final AtomicLong queue = new AtomicLong(); // le rang de la prochaine commande postée
+	protected long tete;                  // le rang de la prochaine commande exécutée, propre au consommateur
+	protected volatile long nbExecutees;  // le nombre de commandes exécutées
+	protected volatile double[] releve;   // le dernier état publié par le consommateur
+	protected volatile RuntimeException erreur; // la première erreur survenue lors d'une exécution
+	protected volatile int largeur, hauteur; // les dimensions de la feuille, relevées par l'horloge
+	protected volatile boolean actif = true;
+	protected volatile boolean endormi;   // le consommateur attend une commande
+	protected final Thread consommateur;
+	protected final Timer horloge;        // affiche les relevés dans le fil de Swing
+	protected double[] affiche;           // le dernier relevé affiché
+	/**
+	 * Démarre l'exécution asynchrone ; doit être appelé dans le fil de Swing.
+	 * La tortue passe en mode différé.
+	 * @param turtle la tortue
+	 * @param capacite la capacité minimale de la file
+	 * @require argumentValide : turtle!=null && capacite>0
+	 */
+	public TortueAsynchrone(Turtle turtle, int capacite) {
+		this.turtle=turtle;
+		moteur = turtle.moteur();
+		journal = turtle.journal();
+		int c = Integer.highestOneBit(Math.max(1,capacite-1))<<1;
+		masque = c-1;
+		sequences = new AtomicLongArray(c);
+		for(int i=0; i<c; i++) sequences.set(i,i);
+		codes = new byte[c];
+		operandes = new double[2*c];
+		turtle.setDiffere(true);
+		dimensionner();
+		horloge = new Timer(PERIODE, new ActionListener(){
+			public void actionPerformed(ActionEvent e) {afficher();}
+		});
+		horloge.start();
+		consommateur = new Thread(new Runnable(){
+			public void run() {consommer();}
+		}, "TortueAsynchrone");
+		consommateur.setDaemon(true);
+		consommateur.start();
+	}
+	/** @see jus.aoo.turtle._Tortue#avancer(double) */
+	public void avancer(double d) {poster(Programme.AVANCER,d,0);}
+	/** @see jus.aoo.turtle._Tortue#reculer(double) */
+	public void reculer(double d) {poster(Programme.RECULER,d,0);}
+	/** @see jus.aoo.turtle._Tortue#droite(double) */
+	public void droite(double a) {poster(Programme.DROITE,a,0);}
+	/** @see jus.aoo.turtle._Tortue#gauche(double) */
+	public void gauche(double a) {poster(Programme.GAUCHE,a,0);}
+	/** @see jus.aoo.turtle._Tortue#lever() */
+	public void lever() {poster(Programme.LEVER,0,0);}
+	/** @see jus.aoo.turtle._Tortue#baisser() */
+	public void baisser() {poster(Programme.BAISSER,0,0);}
+	/** @see jus.aoo.turtle._Tortue#allerA(double, double) */
+	public void allerA(double dx, double dy) {poster(Programme.ALLER_A,dx,dy);}
+	/**
+	 * Attend que toutes les commandes postées avant l'appel soient exécutées
+	 * @throws InterruptedException si le fil est interrompu pendant l'attente
+	 */
+	public void attendre() throws InterruptedException {
+		long r = queue.get();
+		while(nbExecutees<r) {
+			if(Thread.interrupted()) throw new InterruptedException();
+			if(!actif) return;
+			LockSupport.parkNanos(100000);
+		}
+	}
+	/**
+	 * Restitue la première erreur survenue lors de l'exécution d'une commande ; les commandes
+	 * suivantes sont exécutées malgré tout
+	 * @return l'erreur, null si aucune
+	 */
+	public RuntimeException erreur() {return erreur;}
+	/** @return le nombre de commandes exécutées */
+	public long nbExecutees() {return nbExecutees;}
+	/**
+	 * Arrête l'exécution asynchrone après les commandes déjà postées et affiche l'état final ;
+	 * doit être appelé dans le fil de Swing
+	 * @throws InterruptedException si le fil est interrompu pendant l'attente
+	 */
+	public void arreter() throws InterruptedException {
+		attendre();
+		actif = false;
+		LockSupport.unpark(consommateur);
+		consommateur.join();
+		horloge.stop();
+		afficher();
+	}
+	/**
+	 * Poste une commande, en attendant une case libre si la file est pleine
+	 * @param code le code d'opération
+	 * @param x le premier opérande
+	 * @param y le second opérande
+	 */
+	protected void poster(byte code, double x, double y) {
+		if(!actif) throw new IllegalStateException("exécution asynchrone arrêtée");
+		long r = queue.getAndIncrement();
+		int i = (int)r&masque;
+		while(sequences.get(i)!=r) Thread.yield();
+		codes[i] = code;
+		operandes[2*i] = x; operandes[2*i+1] = y;
+		sequences.set(i,r+1);
+		if(endormi) LockSupport.unpark(consommateur);
+	}
+	/** La boucle du consommateur : exécute les commandes dans l'ordre de leur rang */
+	protected void consommer() {
+		while(actif || nbExecutees<queue.get()) {
+			int i = (int)tete&masque;
+			if(sequences.get(i)!=tete+1) {
+				relever();
+				endormi = true;
+				if(sequences.get(i)!=tete+1 && actif) LockSupport.parkNanos(1000000);
+				endormi = false;
+				moteur.dimensions(largeur,hauteur);
+				continue;
+			}
+			byte code = codes[i];
+			double x = operandes[2*i], y = operandes[2*i+1];
+			sequences.set(i,tete+masque+1); // la case attend la commande d'un tour plus loin
+			tete++;
+			try{
+				executer(code,x,y);
+			}catch(RuntimeException e){
+				if(erreur==null) erreur = e;
+			}
+			nbExecutees = tete;
+			if((tete&(RELEVE-1))==0) {
+				relever();
+				moteur.dimensions(largeur,hauteur);
+			}
+		}
+		relever();
+	}
+	/**
+	 * Exécute une commande sur le moteur et l'inscrit au journal si elle réussit
+	 * @param code le code d'opération
+	 * @param x le premier opérande
+	 * @param y le second opérande
+	 */
+	protected void executer(byte code, double x, double y) {
+		switch(code) {
+			case Programme.AVANCER : moteur.avancer(x); if(journal!=null) journal.avancer(x); break;
+			case Programme.RECULER : moteur.reculer(x); if(journal!=null) journal.reculer(x); break;
+			case Programme.DROITE  : moteur.droite(x); if(journal!=null) journal.droite(x); break;
+			case Programme.GAUCHE  : moteur.gauche(x); if(journal!=null) journal.gauche(x); break;
+			case Programme.LEVER   : moteur.lever(); if(journal!=null) journal.lever(); break;
+			case Programme.BAISSER : moteur.baisser(); if(journal!=null) journal.baisser(); break;
+			case Programme.ALLER_A : moteur.allerA(x,y); if(journal!=null) journal.allerA(x,y); break;
+			default                : throw new IllegalStateException("code de commande inconnu "+code);
+		}
+	}
+	/** Publie l'état du moteur, dans le fil du consommateur */
+	protected void relever() {
+		double[] e = new double[MoteurTortue.TAILLE_ETAT];
+		moteur.sauver(e,0);
+		releve = e;
+	}
+	/** Affiche le dernier état publié et les segments en attente, dans le fil de Swing */
+	protected void afficher() {
+		double[] e = releve;
+		if(e!=null && e!=affiche) {
+			turtle.afficher(e);
+			affiche = e;
+		}
+		turtle.flush();
+		dimensionner();
+	}
+	/** Relève les dimensions de la feuille, dans le fil de Swing */
+	protected void dimensionner() {
+		largeur = turtle.feuille.getWidth();
+		hauteur = turtle.feuille.getHeight();
+	}
+}
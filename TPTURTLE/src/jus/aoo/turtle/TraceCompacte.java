@@ -0,0 +1,114 @@
+package jus.aoo.turtle;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * Mémorise hors du tas les segments tracés par une tortue.
+ * Chaque segment occupe 16 octets : ses extrémités (x1,y1,x2,y2) en simple précision,
+ * rangées dans des blocs de taille fixe alloués par ByteBuffer.allocateDirect à mesure
+ * que la trace grandit. Le parcours transmet les coordonnées sans construire de Segment.
+ * @version 1.0
+ * @see FigureTrace
+ */
+public class TraceCompacte implements _Traceur, _Trace {
+	protected static final int LOG_BLOC = 14;              // un bloc contient 2^LOG_BLOC segments
+	protected static final int TAILLE_BLOC = 1<<LOG_BLOC; // 256 Ko par bloc
+	protected FloatBuffer[] blocs; // les blocs alloués
+	protected int nbBlocs;         // le nombre de blocs alloués
+	protected int nbSegments;      // le nombre de segments mémorisés
+	protected float xmin, ymin, xmax, ymax; // le rectangle englobant les segments
+	protected int generation;      // incrémentée chaque fois que des segments sont oubliés
+	/** Construction d'une trace vide */
+	public TraceCompacte() {
+		blocs = new FloatBuffer[8];
+		clear();
+	}
+	/* (non-Javadoc)
+	 * @see jus.aoo.turtle._Traceur#trace(double, double, double, double)
+	 */
+	public synchronized void trace(double x1, double y1, double x2, double y2) {
+		int b = nbSegments>>>LOG_BLOC;
+		if(b==nbBlocs) {
+			if(nbBlocs==blocs.length) blocs = Arrays.copyOf(blocs, 2*nbBlocs);
+			blocs[nbBlocs++] = ByteBuffer.allocateDirect(16*TAILLE_BLOC).order(ByteOrder.nativeOrder()).asFloatBuffer();
+		}
+		int i = 4*(nbSegments&(TAILLE_BLOC-1));
+		FloatBuffer bloc = blocs[b];
+		float fx1=(float)x1, fy1=(float)y1, fx2=(float)x2, fy2=(float)y2;
+		bloc.put(i,fx1); bloc.put(i+1,fy1); bloc.put(i+2,fx2); bloc.put(i+3,fy2);
+		xmin = Math.min(xmin, Math.min(fx1,fx2)); xmax = Math.max(xmax, Math.max(fx1,fx2));
+		ymin = Math.min(ymin, Math.min(fy1,fy2)); ymax = Math.max(ymax, Math.max(fy1,fy2));
+		nbSegments++;
+	}
+	/* (non-Javadoc)
+	 * @see jus.aoo.turtle._Trace#nbSegments()
+	 */
+	public synchronized int nbSegments() {return nbSegments;}
+	/* (non-Javadoc)
+	 * @see jus.aoo.turtle._Trace#parcourir(jus.aoo.turtle._Traceur)
+	 */
+	public void parcourir(_Traceur t) {parcourir(t,0,nbSegments());}
+	/**
+	 * Transmet, dans l'ordre du tracé, les segments de numéro compris entre debut inclus et fin exclue
+	 * @param t la destination des segments
+	 * @param debut le numéro du premier segment transmis
+	 * @param fin le numéro suivant celui du dernier segment transmis
+	 * @require argumentValide : 0<=debut && debut<=fin && fin<=nbSegments()
+	 */
+	public void parcourir(_Traceur t, int debut, int fin) {
+		FloatBuffer[] blocs;
+		synchronized(this) {blocs=this.blocs;}
+		for(int n=debut; n<fin; ) {
+			FloatBuffer bloc = blocs[n>>>LOG_BLOC];
+			int i = n&(TAILLE_BLOC-1), j = Math.min(TAILLE_BLOC, i+fin-n);
+			for(int k=4*i; k<4*j; k+=4) t.trace(bloc.get(k),bloc.get(k+1),bloc.get(k+2),bloc.get(k+3));
+			n+=j-i;
+		}
+	}
+	/**
+	 * Restitue une coordonnée d'un segment
+	 * @param n le numéro du segment
+	 * @param c 0:x1, 1:y1, 2:x2, 3:y2
+	 * @return la coordonnée
+	 * @require argumentValide : 0<=n && n<nbSegments() && 0<=c && c<4
+	 */
+	public synchronized float coordonnee(int n, int c) {return blocs[n>>>LOG_BLOC].get(4*(n&(TAILLE_BLOC-1))+c);}
+	/** @return la plus petite abscisse des segments, +infini si la trace est vide */
+	public synchronized float xmin() {return xmin;}
+	/** @return la plus petite ordonnée des segments, +infini si la trace est vide */
+	public synchronized float ymin() {return ymin;}
+	/** @return la plus grande abscisse des segments, -infini si la trace est vide */
+	public synchronized float xmax() {return xmax;}
+	/** @return la plus grande ordonnée des segments, -infini si la trace est vide */
+	public synchronized float ymax() {return ymax;}
+	/**
+	 * Restitue la génération de la trace, qui change chaque fois que des segments sont oubliés :
+	 * tant qu'elle est inchangée, les segments déjà lus le sont toujours.
+	 * @return la génération
+	 */
+	public synchronized int generation() {return generation;}
+	/**
+	 * Restitue l'occupation mémoire hors du tas
+	 * @return le nombre d'octets alloués
+	 */
+	public synchronized long octets() {return 16L*TAILLE_BLOC*nbBlocs;}
+	/**
+	 * Oublie les segments de numéro supérieur ou égal à n ; le rectangle englobant n'est pas réduit
+	 * @param n le nombre de segments conservés
+	 */
+	public synchronized void tronquer(int n) {
+		if(n>=nbSegments) return;
+		nbSegments = Math.max(0,n);
+		generation++;
+	}
+	/** Oublie tous les segments mémorisés ; les blocs alloués sont conservés */
+	public synchronized void clear() {
+		nbSegments=0;
+		generation++;
+		xmin = ymin = Float.POSITIVE_INFINITY;
+		xmax = ymax = Float.NEGATIVE_INFINITY;
+	}
+}
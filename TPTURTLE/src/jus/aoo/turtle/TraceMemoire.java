@@ -0,0 +1,51 @@
+package jus.aoo.turtle;
+
+import java.util.Arrays;
+
+/**
+ * Mémorise en mémoire centrale les segments tracés par une tortue.
+ * Les coordonnées sont rangées par quadruplets (x1,y1,x2,y2) dans un unique tableau.
+ * @version 1.0
+ * @see MoteurTortue
+ */
+public class TraceMemoire implements _Traceur, _Trace {
+	protected double[] coordonnees; // les quadruplets (x1,y1,x2,y2)
+	protected int nbSegments;       // le nombre de segments mémorisés
+	/** Construction d'une trace vide */
+	public TraceMemoire() {this(1024);}
+	/**
+	 * Construction d'une trace vide
+	 * @param capacite le nombre de segments prévus
+	 * @require argumentValide : capacite>0
+	 */
+	public TraceMemoire(int capacite) {coordonnees = new double[4*capacite];}
+	/* (non-Javadoc)
+	 * @see jus.aoo.turtle._Traceur#trace(double, double, double, double)
+	 */
+	public void trace(double x1, double y1, double x2, double y2) {
+		int i = 4*nbSegments;
+		if(i==coordonnees.length) coordonnees = Arrays.copyOf(coordonnees, 2*i);
+		coordonnees[i]=x1; coordonnees[i+1]=y1; coordonnees[i+2]=x2; coordonnees[i+3]=y2;
+		nbSegments++;
+	}
+	/* (non-Javadoc)
+	 * @see jus.aoo.turtle._Trace#nbSegments()
+	 */
+	public int nbSegments() {return nbSegments;}
+	/* (non-Javadoc)
+	 * @see jus.aoo.turtle._Trace#parcourir(jus.aoo.turtle._Traceur)
+	 */
+	public void parcourir(_Traceur t) {
+		for(int i=0; i<4*nbSegments; i+=4) t.trace(coordonnees[i],coordonnees[i+1],coordonnees[i+2],coordonnees[i+3]);
+	}
+	/**
+	 * Restitue une coordonnée d'un segment
+	 * @param n le numéro du segment
+	 * @param c 0:x1, 1:y1, 2:x2, 3:y2
+	 * @return la coordonnée
+	 * @require argumentValide : 0<=n && n<nbSegments() && 0<=c && c<4
+	 */
+	public double coordonnee(int n, int c) {return coordonnees[4*n+c];}
+	/** Oublie tous les segments mémorisés */
+	public void clear() {nbSegments=0;}
+}
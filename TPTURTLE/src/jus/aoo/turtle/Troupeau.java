@@ -0,0 +1,105 @@
+package jus.aoo.turtle;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Un troupeau de tortues indépendantes partageant la même feuille et les mêmes obstacles.
+ * Chaque tortue a son propre moteur et sa propre trace ; les tortues étant indépendantes,
+ * elles sont réparties entre les fils d'un ForkJoinPool qui les font progresser en parallèle.
+ * La fusion des traces se fait dans l'ordre des numéros de tortue : le résultat ne dépend
+ * pas de l'ordonnancement.
+ * @version 1.0
+ * @see _Comportement
+ */
+public class Troupeau {
+	/** le nombre de tortues en dessous duquel un lot n'est plus subdivisé */
+	protected static final int SEUIL = 16;
+	protected MoteurTortue[] tortues; // les tortues du troupeau
+	protected TraceMemoire[] traces;  // la trace de chaque tortue
+	protected _Comportement comportement; // le comportement commun des tortues
+	protected ForkJoinPool pool;     // les fils d'exécution
+	protected long etape;            // le numéro de la prochaine étape
+	/**
+	 * Construction d'un troupeau utilisant le pool commun
+	 * @see #Troupeau(int, int, int, RegistreObstacles, _Comportement, ForkJoinPool)
+	 */
+	public Troupeau(int nb, int largeur, int hauteur, RegistreObstacles obstacles, _Comportement comportement) {
+		this(nb,largeur,hauteur,obstacles,comportement,ForkJoinPool.commonPool());
+	}
+	/**
+	 * Construction d'un troupeau de tortues placées à l'origine, plume baissée
+	 * @param nb le nombre de tortues
+	 * @param largeur la largeur de la feuille
+	 * @param hauteur la hauteur de la feuille
+	 * @param obstacles les obstacles, null si aucun ; ils ne doivent pas être modifiés pendant une étape
+	 * @param comportement le comportement des tortues
+	 * @param pool les fils d'exécution
+	 * @require argumentValide : nb>=0 && comportement!=null && pool!=null
+	 */
+	public Troupeau(int nb, int largeur, int hauteur, RegistreObstacles obstacles, _Comportement comportement, ForkJoinPool pool) {
+		this.comportement=comportement;
+		this.pool=pool;
+		tortues = new MoteurTortue[nb];
+		traces = new TraceMemoire[nb];
+		for(int i=0; i<nb; i++) {
+			traces[i] = new TraceMemoire(64);
+			tortues[i] = new MoteurTortue(traces[i],largeur,hauteur);
+			tortues[i].setObstacles(obstacles);
+			tortues[i].baisser();
+		}
+	}
+	/**
+	 * Fait progresser toutes les tortues de nbEtapes étapes
+	 * @param nbEtapes le nombre d'étapes
+	 * @require argumentValide : nbEtapes>=0
+	 */
+	public void avancer(int nbEtapes) {
+		pool.invoke(new Lot(0,tortues.length,etape,nbEtapes));
+		etape+=nbEtapes;
+	}
+	/**
+	 * Transmet les traces de toutes les tortues, dans l'ordre de leurs numéros
+	 * @param t la destination des segments
+	 */
+	public void fusionner(_Traceur t) {
+		for(TraceMemoire trace : traces) trace.parcourir(t);
+	}
+	/** @return le nombre de tortues */
+	public int nbTortues() {return tortues.length;}
+	/**
+	 * @param i le numéro d'une tortue
+	 * @return la tortue
+	 */
+	public MoteurTortue tortue(int i) {return tortues[i];}
+	/**
+	 * @param i le numéro d'une tortue
+	 * @return sa trace
+	 */
+	public TraceMemoire trace(int i) {return traces[i];}
+	/** @return le nombre d'étapes déjà effectuées */
+	public long etape() {return etape;}
+	/**
+	 * Un lot de tortues consécutives, subdivisé tant qu'il dépasse le seuil
+	 */
+	protected class Lot extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		protected int debut, fin;    // les numéros des tortues du lot
+		protected long premiere;     // le numéro de la première étape
+		protected int nbEtapes;
+		protected Lot(int debut, int fin, long premiere, int nbEtapes) {
+			this.debut=debut; this.fin=fin; this.premiere=premiere; this.nbEtapes=nbEtapes;
+		}
+		protected void compute() {
+			if(fin-debut>SEUIL) {
+				int milieu = (debut+fin)>>>1;
+				invokeAll(new Lot(debut,milieu,premiere,nbEtapes), new Lot(milieu,fin,premiere,nbEtapes));
+			}else{
+				for(int i=debut; i<fin; i++) {
+					MoteurTortue t = tortues[i];
+					for(long e=premiere; e<premiere+nbEtapes; e++) comportement.agir(t,i,e);
+				}
+			}
+		}
+	}
+}
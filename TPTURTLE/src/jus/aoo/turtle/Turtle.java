@@ -3,51 +3,69 @@ package jus.aoo.turtle;
 
 import static jus.aoo.geometrie.DrawingSpace.Repere.CENTRE;
 
+import java.awt.Rectangle;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.io.IOException;
+import java.nio.file.Path;
+
+import javax.swing.Timer;
 
 import jus.aoo.geometrie.DrawingSpace;
 import jus.aoo.geometrie.Point;
 import jus.aoo.geometrie.Segment;
-import jus.aoo.geometrie.TurtleImage;
 import jus.aoo.geometrie.Vecteur;
 import jus.util.assertion.*;
 
 /**
- * Ralise les fonctions d'une tortue du modle Logo
+ * Réalise les fonctions d'une tortue du modèle Logo
  * @author	P.Morat ou http://imag.fr/Philippe.Morat ...
  * @version	1.0
- * @invariant Cohrent : Math.abs(Cap().module()-1) < Vecteur.EPSILON
- * @motcle tortue, Logo, trac, dessin
+ * @invariant Cohérent : Math.abs(Cap().module()-1) < Vecteur.EPSILON
+ * @motcle tortue, Logo, tracé, dessin
  * @see <a href="Turtle.java">Turtle</a>
  */
-public class Turtle {
-	protected DrawingSpace feuille; // l'espace de dplacement de la tortue
-	protected static final String imageFile = "/jus/aoo/turtle/Turtle.gif"; //le nom de l'image matrialisant la tortue.
-	protected TurtleImage image; //l'image de la tortue 
-	protected boolean estLeve;  // tat de la plume
-	protected Point position;   // la position courante de la tortue
-	protected Vecteur cap;      // direction courante de la tortue
+public class Turtle implements _Tortue {
+	protected DrawingSpace feuille; // l'espace de déplacement de la tortue
+	protected static final String imageFile = "/jus/aoo/turtle/Turtle.gif"; //le nom de l'image matérialisant la tortue.
+	protected ImageTortue image; //l'image de la tortue 
+	protected MoteurTortue moteur; // l'état et la sémantique de la tortue, indépendants de l'affichage
+	protected RegistreObstacles obstacles; // les obstacles placés sur la feuille
+	protected static final int PERIODE = 1000/60; // l'intervalle entre deux réaffichages en mode différé, en ms
+	protected boolean differe; // en mode différé, segments et réaffichages sont regroupés
+	protected TamponSegments tampon; // les segments en attente d'affichage en mode différé
+	protected Rectangle aRafraichir; // la zone à réafficher en attente en mode différé, null s'il n'y en a pas
+	protected Rectangle zoneImage; // la zone de l'image de la tortue lors du dernier réaffichage
+	protected Timer horloge; // déclenche l'affichage des éléments en attente en mode différé
+	protected Journal journal; // le journal des commandes exécutées, null s'il est désactivé
+	protected static final int PAS_PLANIFICATION = 4; // le côté des cellules de la grille de planification
+	protected Planificateur planificateur; // planifie les trajets de allerA(Point), créé au premier usage
 	/**
 	* le constructeur de tortue
-	* @param feuille la surface explore
+	* @param feuille la surface explorée
 	* @require fmtOk : feuille!=null
 	*/
-	public Turtle(DrawingSpace feuille) {
+	public Turtle(final DrawingSpace feuille) {
 		this.feuille=feuille;
-		try{
-			position = new Point(0,0);
-		}catch(Require e) {
-		}
-		cap = new Vecteur(Vecteur.UNITE);
-		estLeve=true;
+		tampon = new TamponSegments();
+		moteur = new MoteurTortue(new _Traceur(){
+			public void trace(double x1, double y1, double x2, double y2) {
+				if(differe) tampon.trace(x1,y1,x2,y2);
+				else if(feuille instanceof EspaceTortue) ((EspaceTortue)feuille).ajouter(x1,y1,x2,y2);
+				else feuille.add(new Segment(new Point(x1,y1),new Point(x2,y2)));
+			}
+		}, feuille.getWidth(), feuille.getHeight());
+		obstacles = new RegistreObstacles();
+		moteur.setObstacles(obstacles);
 
-		/* On ralise des transformations sur le support de dessin pour avoir le zero au centre de l'espace
-		 * l'orientation positive des ordonnes vers le haut et le cap zro   droite.
+		/* On réalise des transformations sur le support de dessin pour avoir le zero au centre de l'espace
+		 * l'orientation positive des ordonnéées vers le haut et le cap zéro  à droite.
 		 * On maintient cependant la rotation dans le sens anti-horaire */ 
 		feuille.setRepere(CENTRE);
 		try{
-			image = new TurtleImage(position,imageFile);
+			image = new ImageTortue(moteur.position(),imageFile);
 			image.show(true);
+			zoneImage = image.zone();
 		}catch(IOException e){
 			e.printStackTrace();
 		}
@@ -55,7 +73,7 @@ public class Turtle {
 	}
 	/**	
 	* Fait avancer la tortue de d pas
-	* @param d la distance  parcourir
+	* @param d la distance à parcourir
 	* @require argumentValide : d>=0
 	* @require destinationVisible : destinationVisible()
 	* @ensure CapInchange : _cap().equals(cap())
@@ -63,171 +81,405 @@ public class Turtle {
 	* @ensure capOk : new Vecteur(_position(),position()).colineaire(cap())
 	* @invariant : visibsssle
 	*/
-	public void avancer(int d) {
-		//if(!(destinationVisible(d, cap))) throw new Require("destinationVisible");
-		Point _position = new Point(position);
-		Vecteur v = calculVecteurReel(d , cap);
-		position.translation(v);
-		image.translation(v);
-		if(!estLeve){
-			feuille.add(new Segment(_position,position));
-		}else feuille.repaint();
-		
-		_invariant();
+	public void avancer(int d) {avancer((double)d);}
+	/* (non-Javadoc)
+	 * @see jus.aoo.turtle._Tortue#avancer(double)
+	 */
+	public void avancer(double d) {
+		long t0 = Mesures.ACTIVES ? System.nanoTime() : 0;
+		try{
+			dimensionner();
+			moteur.avancer(d);
+			if(journal!=null) journal.avancer(d);
+		}finally{
+			suivre();
+			if(Mesures.ACTIVES) Mesures.AVANCER.enregistrer(System.nanoTime()-t0);
+		}
 	}
-	
-	public void allerA(Vecteur a) {
-		Point _position = new Point(position);
-		position.translation(a);
-		image.translation(a);
-		
-		if(!estLeve){
-			feuille.add(new Segment(_position,position));
-		}else feuille.repaint();
-		
-		_invariant();
+	/**
+	* Déplace la tortue du vecteur a sans changer son cap
+	* @param a le déplacement
+	*/
+	public void allerA(Vecteur a) {allerA(a.dx(),a.dy());}
+	/* (non-Javadoc)
+	 * @see jus.aoo.turtle._Tortue#allerA(double, double)
+	 */
+	public void allerA(double dx, double dy) {
+		long t0 = Mesures.ACTIVES ? System.nanoTime() : 0;
+		try{
+			dimensionner();
+			moteur.allerA(dx,dy);
+			if(journal!=null) journal.allerA(dx,dy);
+		}finally{
+			suivre();
+			if(Mesures.ACTIVES) Mesures.ALLER_A.enregistrer(System.nanoTime()-t0);
+		}
 	}
-	
-	public void allerA(Vecteur a) {
-		Point _position = new Point(position);
-		position.translation(a);
-		image.translation(a);
-		
-		if(!estLeve){
-			feuille.add(new Segment(_position,position));
-		}else feuille.repaint();
-		
-		_invariant();
+	/**
+	* Conduit la tortue au point cible en contournant les obstacles, sans changer son cap.
+	* Le trajet est planifié sur une grille dérivée des obstacles, conservée d'un appel à l'autre.
+	* @param cible le point à atteindre
+	* @return false si aucun trajet ne mène à la cible, la tortue n'ayant alors pas bougé
+	* @require argumentValide : cible!=null
+	* @see Planificateur
+	*/
+	public boolean allerA(Point cible) {
+		long t0 = Mesures.ACTIVES ? System.nanoTime() : 0;
+		try{
+			dimensionner();
+			if(planificateur==null) planificateur = new Planificateur(obstacles,PAS_PLANIFICATION);
+			double[] etapes = planificateur.chemin(moteur.abscisse(),moteur.ordonnee(),cible.abscisse(),cible.ordonnee(),feuille.getWidth(),feuille.getHeight());
+			if(etapes==null) return false;
+			for(int i=0; i<etapes.length; i+=2) {
+				double dx = etapes[i]-moteur.abscisse(), dy = etapes[i+1]-moteur.ordonnee();
+				moteur.allerA(dx,dy);
+				if(journal!=null) journal.allerA(dx,dy);
+			}
+			return true;
+		}finally{
+			suivre();
+			if(Mesures.ACTIVES) Mesures.TRAJET.enregistrer(System.nanoTime()-t0);
+		}
+	}
+	/**
+	* Oriente la tortue vers le point p
+	* @param p le point visé
+	* @require argumentValide : p!=null && !p.equals(position())
+	*/
+	public void tournerVers(Point p) {
+		double a = Math.toDegrees(Math.atan2(p.ordonnee()-moteur.ordonnee(),p.abscisse()-moteur.abscisse())-moteur.angle());
+		gauche(a-360*Math.floor(a/360));
 	}
-	
 	/**	
 	* Fait reculer la tortue de d pas
-	* @param d la distance  parcourir
+	* @param d la distance à parcourir
 	* @require argumentValide : d>=0
 	* @require destinationVisible : destinationVisible()
 	* @ensure CapInchange : _cap().equals(cap())
 	* @ensure DeplacementOk : new Vecteur(_position(),position()).module()-d < Vecteur.EPSILON
 	* @ensure capOk : new Vecteur(_position(),position()).colineaire(cap())
 	*/
-	public void reculer(int d) {
-		//if(!(destinationVisible(d, cap.oppose() ))) throw new Require("destinationVisible");
-		Point _position = new Point(position);
-		Vecteur v = calculVecteurReel(d , cap.oppose());
-		position.translation(v);
-		image.translation(v);
-		if(!estLeve) {
-			feuille.add(new Segment(_position,position));
-		}else feuille.repaint();
-		
-		_invariant();
+	public void reculer(int d) {reculer((double)d);}
+	/* (non-Javadoc)
+	 * @see jus.aoo.turtle._Tortue#reculer(double)
+	 */
+	public void reculer(double d) {
+		long t0 = Mesures.ACTIVES ? System.nanoTime() : 0;
+		try{
+			dimensionner();
+			moteur.reculer(d);
+			if(journal!=null) journal.reculer(d);
+		}finally{
+			suivre();
+			if(Mesures.ACTIVES) Mesures.RECULER.enregistrer(System.nanoTime()-t0);
+		}
 	}
 	/**	
-	* Fait tourner la  droite d'un angle a
-	* @param a l'angle de rotation en degr
+	* Fait tourner la à droite d'un angle a
+	* @param a l'angle de rotation en degré
 	* @require argumentValide : a>=0
 	* @ensure PositionInchange : new Vecteur(_position(),position()).module() < Vecteur.EPSILON
 	*/
-	public void droite(int a) {
-		cap.rotation((double)-a);
-		image.rotation(-a);
-		feuille.repaint();
-	}
+	public void droite(int a) {tourner(a,true);}
+	/* (non-Javadoc)
+	 * @see jus.aoo.turtle._Tortue#droite(double)
+	 */
+	public void droite(double a) {tourner(a,true);}
 	/**	
-	* Fait tourner la tortue  gauche d'un angle a
-	* @param a l'angle de rotation en degr
+	* Fait tourner la tortue à gauche d'un angle a
+	* @param a l'angle de rotation en degré
 	* @require argumentValide : a>=0
 	* @ensure PositionInchange : new Vecteur(_position(),position()).module() < Vecteur.EPSILON
 	*/
-	public void gauche(int a) {
-		cap.rotation((double)a);
-		image.rotation(a);
-		feuille.repaint();
+	public void gauche(int a) {tourner(a,false);}
+	/* (non-Javadoc)
+	 * @see jus.aoo.turtle._Tortue#gauche(double)
+	 */
+	public void gauche(double a) {tourner(a,false);}
+	/**
+	* Fait tourner la tortue, le moteur recevant un angle entier par la même voie qu'un angle réel
+	* @param a l'angle de rotation en degré
+	* @param aDroite true pour tourner à droite, false à gauche
+	*/
+	private void tourner(double a, boolean aDroite) {
+		long t0 = Mesures.ACTIVES ? System.nanoTime() : 0;
+		if(aDroite) {
+			moteur.droite(a);
+			if(journal!=null) journal.droite(a);
+		}else{
+			moteur.gauche(a);
+			if(journal!=null) journal.gauche(a);
+		}
+		image.rotation(aDroite ? -a : a);
+		rafraichir();
+		if(Mesures.ACTIVES) Mesures.TOURNER.enregistrer(System.nanoTime()-t0);
 	}
 	/**	
 	* Leve la plume
-	* @ensure PlumeLeve : estLeve()
+	* @ensure PlumeLevée : estLeve()
 	*/
-	public void lever() {estLeve = true;}
+	public void lever() {
+		moteur.lever();
+		if(journal!=null) journal.lever();
+	}
 	/**	
 	* Baisse la plume
-	* @ensure PlumeLeve : !estLeve()
+	* @ensure PlumeLevée : !estLeve()
 	*/
-	public void baisser() {estLeve = false;}
+	public void baisser() {
+		moteur.baisser();
+		if(journal!=null) journal.baisser();
+	}
 	/**	
-	* Restitue la reprsentation textuelle de la tortue
+	* Restitue la représentation textuelle de la tortue
 	* @return	la chaine
 	*/
-	public String toString() {return "Tortue["+position+","+cap+"]";}	
+	public String toString() {return moteur.toString();}	
 	/**	
 	* Restitue la position de la tortue
-	* @return	le Point de rfrence de la tortue
+	* @return	le Point de référence de la tortue
 	*/
-	public  Point position() {return new Point(position);}	
+	public  Point position() {return moteur.position();}	
 	/**	
 	* Restitue le cap de la tortue
-	* @return	le Vecteur de rfrence de la tortue
+	* @return	le Vecteur de référence de la tortue
 	*/
-	public  Vecteur cap()  {return new Vecteur(cap);}	
+	public  Vecteur cap()  {return moteur.cap();}	
 	/**	
-	* Restitue l'tat de la plume
-	* @return	true si la plume est leve
+	* Restitue l'état de la plume
+	* @return	true si la plume est levée
 	*/
-	public  boolean estLeve() {return estLeve;}
+	public  boolean estLeve() {return moteur.estLeve();}
+	/**
+	* Place un obstacle sur la feuille ; la tortue s'y arrêtera
+	* @param o l'obstacle
+	* @require argumentValide : o!=null
+	*/
+	public void ajouterObstacle(Obstacle o) {
+		obstacles.ajouter(o);
+		feuille.addPermanent(o);
+	}
+	/**
+	* Place sur la feuille les obstacles d'un fichier de scène, en plus de ceux qui y sont déjà.
+	* Les obstacles chargés sont présentés sur la feuille par une seule figure.
+	* @param fichier le fichier de scène
+	* @return le nombre d'obstacles chargés
+	* @throws IOException si le fichier ne peut être lu ou n'est pas un fichier de scène complet
+	* @see SceneObstacles
+	*/
+	public int chargerObstacles(Path fichier) throws IOException {
+		int nb;
+		FigureObstacles figure;
+		synchronized(obstacles) {
+			int debut = obstacles.nbObstacles();
+			nb = SceneObstacles.charger(fichier, obstacles);
+			figure = new FigureObstacles(obstacles, debut, debut+nb);
+		}
+		if(nb>0) feuille.addPermanent(figure);
+		return nb;
+	}
+	/**
+	* Enregistre dans un fichier de scène les obstacles placés sur la feuille
+	* @param fichier le fichier de scène, remplacé s'il existe
+	* @return le nombre d'obstacles enregistrés
+	* @throws IOException si l'écriture échoue
+	* @see SceneObstacles
+	*/
+	public int enregistrerObstacles(Path fichier) throws IOException {
+		return SceneObstacles.enregistrer(obstacles, fichier);
+	}
+	/**
+	* Fixe la réponse de la tortue au contact d'un obstacle ou du bord de la feuille
+	* @param reponse MoteurTortue.ARRET, MoteurTortue.GLISSEMENT ou MoteurTortue.REBOND
+	* @require argumentValide : reponse==ARRET || reponse==GLISSEMENT || reponse==REBOND
+	* @see MoteurTortue#setReponse(int)
+	*/
+	public void setReponse(int reponse) {moteur.setReponse(reponse);}
+	/**
+	* Restitue les obstacles placés sur la feuille
+	* @return	le registre des obstacles
+	*/
+	public RegistreObstacles obstacles() {return obstacles;}
+	/**
+	* Active ou désactive le mode différé. En mode différé les segments tracés sont
+	* accumulés puis transmis en un seul lot à la feuille, et la feuille est réaffichée
+	* au plus une fois par image ou à chaque appel de flush().
+	* @param differe true pour activer le mode différé
+	*/
+	public void setDiffere(boolean differe) {
+		if(differe && horloge==null) {
+			horloge = new Timer(PERIODE, new ActionListener(){
+				public void actionPerformed(ActionEvent e) {flush();}
+			});
+			horloge.start();
+		}else if(!differe && horloge!=null) {
+			flush();
+			horloge.stop();
+			horloge=null;
+		}
+		this.differe=differe;
+	}
+	/**
+	* Restitue le mode d'affichage
+	* @return	true si le mode différé est actif
+	*/
+	public boolean estDiffere() {return differe;}
+	/**
+	* Transmet à la feuille les segments en attente et réaffiche la zone de l'image si nécessaire ;
+	* Swing regroupe les deux zones en un seul affichage
+	*/
+	public synchronized void flush() {
+		long t0 = Mesures.ACTIVES ? System.nanoTime() : 0;
+		tampon.vider(feuille);
+		if(aRafraichir!=null) reafficher(aRafraichir);
+		aRafraichir=null;
+		if(Mesures.ACTIVES) Mesures.FLUSH.enregistrer(System.nanoTime()-t0);
+	}
+	/**
+	* Demande le réaffichage des zones de l'image de la tortue avant et après son déplacement,
+	* immédiat ou différé selon le mode
+	*/
+	protected synchronized void rafraichir() {
+		if(image==null) {feuille.repaint(); return;}
+		Rectangle zone = image.zone();
+		Rectangle r = zone.union(zoneImage);
+		zoneImage = zone;
+		if(!differe) reafficher(r);
+		else if(aRafraichir==null) aRafraichir=r;
+		else aRafraichir.add(r);
+	}
+	/**
+	* Réaffiche une zone de la feuille, ou toute la feuille si elle n'est pas un EspaceTortue
+	* @param r la zone, dans le repère des figures
+	*/
+	protected void reafficher(Rectangle r) {
+		if(feuille instanceof EspaceTortue) ((EspaceTortue)feuille).reafficher(r.getMinX(),r.getMinY(),r.getMaxX(),r.getMaxY());
+		else feuille.repaint();
+	}
+	/**
+	* Active ou désactive le journal des commandes. Une fois actif, chaque commande exécutée
+	* avec succès y est enregistrée ; l'étape 0 est l'état de la tortue à l'activation.
+	* Les segments effacés par un retour en arrière ne sont retirés que d'un EspaceTortue.
+	* @param actif true pour activer le journal
+	*/
+	public void setJournal(boolean actif) {
+		if(!actif) journal=null;
+		else if(journal==null) journal = new Journal(moteur){
+			protected void oublier(int nb) {oublierSegments(nb);}
+		};
+	}
+	/**
+	* Restitue le journal des commandes
+	* @return	le journal, null s'il est désactivé
+	*/
+	public Journal journal() {return journal;}
+	/**
+	* Annule la dernière commande du journal
+	* @return	false si le journal est désactivé ou s'il n'y a rien à annuler
+	*/
+	public boolean annuler() {
+		if(journal==null || journal.pas()==0) return false;
+		allerAuPas(journal.pas()-1);
+		return true;
+	}
+	/**
+	* Refait la dernière commande annulée du journal
+	* @return	false si le journal est désactivé ou s'il n'y a rien à refaire
+	*/
+	public boolean refaire() {
+		if(journal==null || journal.pas()==journal.taille()) return false;
+		allerAuPas(journal.pas()+1);
+		return true;
+	}
+	/**
+	* Rétablit l'état de l'étape courante du journal, par exemple après une commande
+	* interrompue par la violation d'un invariant, qui n'a pas été enregistrée
+	*/
+	public void retablir() {
+		if(journal==null) return;
+		try{
+			dimensionner();
+			journal.retablir();
+		}finally{
+			image.orienter(moteur.angle());
+			image.placer(moteur.abscisse(),moteur.ordonnee());
+			rafraichir();
+		}
+	}
+	/**
+	* Ramène la tortue à une étape du journal
+	* @param n l'étape visée
+	* @require journalActif : journal()!=null
+	* @require argumentValide : 0<=n && n<=journal().taille()
+	*/
+	public void allerAuPas(int n) {
+		try{
+			dimensionner();
+			journal.allerAuPas(n);
+		}finally{
+			image.orienter(moteur.angle());
+			image.placer(moteur.abscisse(),moteur.ordonnee());
+			rafraichir();
+		}
+	}
+	/**
+	* Place l'image de la tortue selon un état relevé par MoteurTortue.sauver
+	* @param e l'état
+	*/
+	protected void afficher(double[] e) {
+		image.orienter(e[2]);
+		image.placer(e[0],e[1]);
+		rafraichir();
+	}
+	/**
+	* Retire de la feuille les derniers segments tracés par la tortue
+	* @param nb le nombre de segments
+	*/
+	protected void oublierSegments(int nb) {
+		if(nb<=0 || !(feuille instanceof EspaceTortue)) return;
+		flush();
+		TraceCompacte trace = ((EspaceTortue)feuille).trace();
+		trace.tronquer(trace.nbSegments()-nb);
+		feuille.repaint();
+	}
+	/**
+	* Restitue le moteur qui porte l'état de la tortue
+	* @return	le moteur
+	*/
+	public MoteurTortue moteur() {return moteur;}
 
 	/**	
-	* verifie la visiblit de la tortue dans la feuille
+	* verifie la visiblité de la tortue dans la feuille
 	* @invarient : visible : visible()
 	* @return    : true visible , false non visible
 	*/
 	public boolean visible() {
-		return position.abscisse()  <= feuille.getWidth()/2 
-			&& position.abscisse()  >= - feuille.getWidth()/2
-			&& position.ordonnee()  <= feuille.getHeight()/2
-			&& position.ordonnee()  >= - feuille.getHeight()/2;
+		dimensionner();
+		return moteur.visible();
 	}
 	
 	public boolean destinationVisible(int d, Vecteur _cap) {
-		Point _pointFutur = new Point(position);
-		Vecteur v = new Vecteur(_cap); v.homothetie(d);
-		_pointFutur.translation(v);
-		
-		return _pointFutur.abscisse()  < feuille.getWidth()/2 
-				&& _pointFutur.abscisse()  > - feuille.getWidth()/2
-				&& _pointFutur.ordonnee()  < feuille.getHeight()/2
-				&& _pointFutur.ordonnee()  > - feuille.getHeight()/2;
+		dimensionner();
+		return moteur.destinationVisible(d,_cap);
 	}
-	/**	
-	* verifie la visiblit de la tortue dans la feuille
-	* @invarient : destvisible : desvisible()
-	* @return    : true visible , false non visible
+	
+	public Vecteur calculVecteurReel(int d, Vecteur _cap) {
+		dimensionner();
+		return moteur.calculVecteurReel(d,_cap);
+	}
+	/**
+	* Aligne les dimensions connues du moteur sur celles de la feuille
 	*/
-	 private void _invariant() {
-		 if(!visible()) throw new Invariant("visible");
-	 }
-	 
-	 public Vecteur calculVecteurReel(int d, Vecteur _cap) {
-			Point _point = new Point(position);
-			Vecteur v = new Vecteur(_cap); v.homothetie(d);
-			_point.translation(v);
-			
-			double ratioX = 1;
-			double ratioY = 1;
-			 
-			if(_point.abscisse() > feuille.getWidth()/ 2 )
-				ratioX = (feuille.getWidth()/2 - position.abscisse())/v.dx();
-			else if(_point.abscisse() < - feuille.getWidth()/ 2 )
-				ratioX = -( feuille.getWidth()/2 + position.abscisse())/v.dx();
-			
-			else if(_point.ordonnee() > feuille.getHeight()/ 2 )
-				ratioY = (feuille.getHeight()/2 - position.ordonnee())/v.dy();
-			else if(_point.ordonnee() < - feuille.getHeight()/ 2 ) {
-				ratioY = -(feuille.getHeight()/2 + position.ordonnee())/v.dy();
-			}
-			
-			// unchanged d*1*1 = d, changed ratioX d*0.c*1 = d*O.X
-			Vecteur z =  new Vecteur(_cap);
-			z.homothetie(d*ratioX*ratioY); 
-			return z;
-	 }
-	 
-}
\ No newline at end of file
+	protected void dimensionner() {moteur.dimensions(feuille.getWidth(),feuille.getHeight());}
+	/**
+	* Replace l'image sur la position et le cap de la tortue, qu'un rebond peut avoir changé,
+	* et réaffiche les zones qu'elle quitte et occupe ; l'ajout d'un segment réaffiche de son côté la zone du segment.
+	*/
+	protected void suivre() {
+		long t0 = Mesures.ACTIVES ? System.nanoTime() : 0;
+		image.orienter(moteur.angle());
+		image.placer(moteur.abscisse(),moteur.ordonnee());
+		rafraichir();
+		if(Mesures.ACTIVES) Mesures.SUIVRE.enregistrer(System.nanoTime()-t0);
+	}
+}
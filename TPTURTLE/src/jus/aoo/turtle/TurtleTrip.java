@@ -7,9 +7,13 @@ import java.awt.BorderLayout;
 import java.awt.Container;
 import java.awt.Window;
 
+import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
 import javax.swing.JApplet;
 import javax.swing.JButton;
 import java.awt.FlowLayout;
@@ -20,6 +24,7 @@ import javax.swing.JSlider;
 import javax.swing.JCheckBox;
 import javax.swing.JLabel;
 import java.awt.GridLayout;
+import java.io.IOException;
 
 import jus.aoo.geometrie.DrawingSpace;
 import jus.aoo.geometrie.Point;
@@ -57,12 +62,16 @@ import jus.util.assertion.Require;
  */
 public class TurtleTrip extends JApplet {
 	private static final long serialVersionUID = -3482402636356105893L;
+	// le budget d'un programme Logo : instructions, appels imbriqués et durée en ms
+	private static final long MAX_INSTRUCTIONS = 1L<<28;
+	private static final int MAX_PROFONDEUR = 1<<14;
+	private static final long DELAI = 30000;
 	/** La tortue control�e par cette interface */
 	private Turtle turtle;
 	/** les widgets */
 	private JPanel jContentPane = null;
 	private JPanel control = null;
-	private DrawingSpace turtleArea = null;
+	private EspaceTortue turtleArea = null;
 	private JButton allerA = null;
 	private JButton tournerVers = null;
 	private JButton avancer = null;
@@ -71,6 +80,13 @@ public class TurtleTrip extends JApplet {
 	private JButton gauche = null;
 	private JButton quit = null;
 	private JButton clear = null;
+	private JButton logo = null;
+	private JButton annuler = null;
+	private JButton refaire = null;
+	private JButton chargerScene = null;
+	private JButton enregistrerScene = null;
+	/** le dernier programme Logo saisi */
+	private String script = "repeter 36 [repeter 4 [av 100 dr 90] dr 10]";
 	private JPanel jPanel = null;
 	private JPanel jPanel1 = null;
 	private JPanel jPanel2 = null;
@@ -115,6 +131,8 @@ public class TurtleTrip extends JApplet {
 		container.add(getJContentPane());
 		if(f!=null) f.pack();
     turtle = new Turtle(turtleArea);
+    turtle.setDiffere(true);
+    turtle.setJournal(true);
 	}
 	/**
 	 * This method initializes jContentPane 
@@ -149,7 +167,7 @@ public class TurtleTrip extends JApplet {
 	 */
 	private DrawingSpace getTurtleArea() {
 		if(turtleArea == null){
-			turtleArea = new DrawingSpace(false);
+			turtleArea = new EspaceTortue(false);
 			turtleArea.setBackground(new java.awt.Color(215, 255, 215));
 			turtleArea.setMinimumSize(new java.awt.Dimension(650, 400));
 			turtleArea.setPreferredSize(new java.awt.Dimension(650, 400));
@@ -178,8 +196,13 @@ public class TurtleTrip extends JApplet {
 			allerA.setText("allerA");
 			allerA.addActionListener(new java.awt.event.ActionListener(){
 				public void actionPerformed(java.awt.event.ActionEvent e) {
-						//action
-						
+		      try {
+				if(!turtle.allerA(new Point(abscisse.getValue(),ordonnee.getValue())))
+					JOptionPane.showMessageDialog(null, "Aucun trajet ne mène à ce point");
+			} catch (Invariant e1) {
+				JOptionPane.showConfirmDialog(null, e1.getMessage());
+				turtle.retablir();
+			}
 		    }});
 		}
 		return allerA;
@@ -190,7 +213,8 @@ public class TurtleTrip extends JApplet {
 			tournerVers.setText("tournerVers");
 			tournerVers.addActionListener(new java.awt.event.ActionListener(){
 				public void actionPerformed(java.awt.event.ActionEvent e) {
-						//action
+				Point p = new Point(abscisse.getValue(),ordonnee.getValue());
+				if(!p.proche(turtle.position())) turtle.tournerVers(p);
 		    }});
 		}
 		return tournerVers;
@@ -211,7 +235,7 @@ public class TurtleTrip extends JApplet {
 				turtle.avancer(distance.getValue());
 			} catch (Invariant e1) {
 				JOptionPane.showConfirmDialog(null, e1.getMessage());
-				turtle.reculer(distance.getValue());
+				turtle.retablir();
 			} catch (Require e2) {
 				JOptionPane.showConfirmDialog(null, e2.getMessage());
 			}
@@ -233,7 +257,7 @@ public class TurtleTrip extends JApplet {
 				turtle.reculer(distance.getValue());
 			} catch (Invariant e3) {
 				JOptionPane.showConfirmDialog(null, e3.getMessage());
-				turtle.avancer(distance.getValue());
+				turtle.retablir();
 			}catch (Require e4) {
 					JOptionPane.showConfirmDialog(null, e4.getMessage());
 				}
@@ -296,11 +320,158 @@ public class TurtleTrip extends JApplet {
 			clear.setText("Clear");
 			clear.addActionListener(new java.awt.event.ActionListener(){
 				public void actionPerformed(java.awt.event.ActionEvent e) {
+		      // les segments en attente du mode différé seraient tracés après l'effacement
+		      turtle.flush();
 		      turtleArea.clear();
+		      turtle.journal().clear();
 		    }});
 		}
 		return clear;
 	}
+	/**
+	 * This method initializes annuler	
+	 * @return javax.swing.JButton	
+	 */
+	private JButton getAnnuler() {
+		if(annuler == null){
+			annuler = new JButton();
+			annuler.setText("Annuler");
+			annuler.addActionListener(new java.awt.event.ActionListener(){
+				public void actionPerformed(java.awt.event.ActionEvent e) {
+		      turtle.annuler();
+		    }});
+		}
+		return annuler;
+	}
+	/**
+	 * This method initializes refaire	
+	 * @return javax.swing.JButton	
+	 */
+	private JButton getRefaire() {
+		if(refaire == null){
+			refaire = new JButton();
+			refaire.setText("Refaire");
+			refaire.addActionListener(new java.awt.event.ActionListener(){
+				public void actionPerformed(java.awt.event.ActionEvent e) {
+		      turtle.refaire();
+		    }});
+		}
+		return refaire;
+	}
+	/**
+	 * This method initializes chargerScene	
+	 * @return javax.swing.JButton	
+	 */
+	private JButton getChargerScene() {
+		if(chargerScene == null){
+			chargerScene = new JButton();
+			chargerScene.setText("Charger");
+			chargerScene.addActionListener(new java.awt.event.ActionListener(){
+				public void actionPerformed(java.awt.event.ActionEvent e) {
+					JFileChooser choix = new JFileChooser();
+					if(choix.showOpenDialog(jContentPane)!=JFileChooser.APPROVE_OPTION) return;
+					try {
+						turtle.chargerObstacles(choix.getSelectedFile().toPath());
+					} catch (IOException e1) {
+						JOptionPane.showMessageDialog(null, e1.getMessage());
+					}
+				}});
+		}
+		return chargerScene;
+	}
+	/**
+	 * This method initializes enregistrerScene	
+	 * @return javax.swing.JButton	
+	 */
+	private JButton getEnregistrerScene() {
+		if(enregistrerScene == null){
+			enregistrerScene = new JButton();
+			enregistrerScene.setText("Enregistrer");
+			enregistrerScene.addActionListener(new java.awt.event.ActionListener(){
+				public void actionPerformed(java.awt.event.ActionEvent e) {
+					JFileChooser choix = new JFileChooser();
+					if(choix.showSaveDialog(jContentPane)!=JFileChooser.APPROVE_OPTION) return;
+					try {
+						turtle.enregistrerObstacles(choix.getSelectedFile().toPath());
+					} catch (IOException e1) {
+						JOptionPane.showMessageDialog(null, e1.getMessage());
+					}
+				}});
+		}
+		return enregistrerScene;
+	}
+	/**
+	 * This method initializes logo	
+	 * @return javax.swing.JButton	
+	 */
+	private JButton getLogo() {
+		if(logo == null){
+			logo = new JButton();
+			logo.setText("Logo");
+			logo.addActionListener(new java.awt.event.ActionListener(){
+				public void actionPerformed(java.awt.event.ActionEvent e) {
+					// pendant une exécution, le bouton interrompt le programme
+					if(execution!=null) {execution.interrupt(); return;}
+					JTextArea texte = new JTextArea(script,12,40);
+					if(JOptionPane.showConfirmDialog(null, new JScrollPane(texte), "Programme Logo",
+							JOptionPane.OK_CANCEL_OPTION)!=JOptionPane.OK_OPTION) return;
+					script = texte.getText();
+					final ProgrammeLogo programme;
+					try {
+						programme = CompilateurLogo.compiler(script);
+					} catch (ErreurLogo e1) {
+						JOptionPane.showMessageDialog(null, e1.getMessage());
+						return;
+					}
+					// le programme s'exécute hors du fil de Swing, dans son budget ; les commandes sont
+					// désactivées jusqu'à sa fin, quelle qu'elle soit
+					final TortueAsynchrone asynchrone = new TortueAsynchrone(turtle, 1<<16);
+					activer(false);
+					execution = new Thread(new Runnable(){
+						public void run() {
+							Throwable erreur = null;
+							try {
+								programme.executer(asynchrone, MAX_INSTRUCTIONS, MAX_PROFONDEUR, DELAI);
+							} catch (Throwable e2) {
+								erreur = e2;
+							} finally {
+								final Throwable erreurProgramme = erreur;
+								SwingUtilities.invokeLater(new Runnable(){
+									public void run() {
+										try {
+											asynchrone.arreter();
+										} catch (InterruptedException e3) {
+											Thread.currentThread().interrupt();
+										} finally {
+											execution = null;
+											activer(true);
+										}
+										Throwable e4 = erreurProgramme!=null ? erreurProgramme : asynchrone.erreur();
+										if(e4!=null) {
+											JOptionPane.showMessageDialog(null, e4.getMessage()!=null ? e4.getMessage() : e4.toString());
+											turtle.retablir();
+										}
+									}});
+							}
+						}}, "Logo");
+					execution.start();
+				}});
+		}
+		return logo;
+	}
+	/**
+	 * Active ou désactive les commandes de la tortue, Quit excepté, ainsi que la création
+	 * d'obstacles à la souris : pendant l'exécution d'un programme, le registre des obstacles
+	 * est interrogé par un autre fil et ne doit pas être modifié. Le bouton Logo reste actif
+	 * pour interrompre le programme.
+	 * @param actif true pour activer les commandes
+	 */
+	private void activer(boolean actif) {
+		enExecution = !actif;
+		for(java.awt.Component c : getJPanel().getComponents()) c.setEnabled(actif);
+		for(java.awt.Component c : getJPanel1().getComponents()) if(c!=getQuit() && c!=getLogo()) c.setEnabled(actif);
+		getLogo().setText(actif ? "Logo" : "Arrêter");
+	}
 	/**
 	 * This method initializes jPanel		
 	 * @return javax.swing.JPanel	
@@ -329,6 +500,11 @@ public class TurtleTrip extends JApplet {
 		if(jPanel1 == null){
 			jPanel1 = new JPanel();
 			jPanel1.setLayout(new FlowLayout());
+			jPanel1.add(getLogo(), null);
+			jPanel1.add(getAnnuler(), null);
+			jPanel1.add(getRefaire(), null);
+			jPanel1.add(getChargerScene(), null);
+			jPanel1.add(getEnregistrerScene(), null);
 			jPanel1.add(getClear(), null);
 			jPanel1.add(getQuit(), null);
 		}
@@ -550,6 +726,8 @@ public class TurtleTrip extends JApplet {
   private _NewFigure newFigure;    
   /** le point de s�lection */
   private java.awt.Point positionMouseInGeometrie;
+  private boolean enExecution; // un programme Logo est en cours d'exécution
+  private Thread execution;    // le fil du programme Logo en cours, null si aucun
   private void geometrieMouseMoved(java.awt.event.MouseEvent evt) {//GEN-FIRST:event_geometrieMouseMoved
     try{
     		java.awt.geom.Point2D p = evt.getPoint();
@@ -571,6 +749,7 @@ public class TurtleTrip extends JApplet {
     }
   }//GEN-LAST:event_geometrieMouseMoved
   private void geometrieMousePressed(java.awt.event.MouseEvent evt) {//GEN-FIRST:event_geometrieMousePressed
+    if(enExecution) return;
     try{
         java.awt.geom.Point2D p = evt.getPoint();
 				for(java.awt.geom.AffineTransform t : turtleArea.inverseTransformations()){p=t.transform(p,null);}
@@ -594,7 +773,7 @@ public class TurtleTrip extends JApplet {
     		return;
     	}
     	if(newFigure.isComplete()){
-        turtleArea.addPermanent(newFigure.figure());
+        turtle.ajouterObstacle((Obstacle)newFigure.figure());
     		turtleArea.clearTemporaire();
     		newFigure=null;
     	}
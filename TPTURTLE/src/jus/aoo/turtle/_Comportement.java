@@ -0,0 +1,18 @@
+package jus.aoo.turtle;
+
+/**
+ * Le comportement d'une tortue d'un troupeau : les commandes qu'elle exécute à chaque étape.
+ * Pour que la simulation soit reproductible quel que soit l'ordonnancement des fils
+ * d'exécution, un comportement ne doit dépendre que de la tortue, de son numéro et de l'étape.
+ * @version 1.0
+ * @see Troupeau
+ */
+public interface _Comportement {
+	/**
+	 * Fait agir une tortue pendant une étape
+	 * @param t la tortue
+	 * @param numero le numéro de la tortue dans le troupeau
+	 * @param etape le numéro de l'étape
+	 */
+	public void agir(MoteurTortue t, int numero, long etape);
+}
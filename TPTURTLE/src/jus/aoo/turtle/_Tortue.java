@@ -0,0 +1,42 @@
+package jus.aoo.turtle;
+
+/**
+ * Les commandes d'une tortue du modèle Logo, indépendamment de son support d'affichage.
+ * @version 1.0
+ * @see MoteurTortue
+ * @see Turtle
+ */
+public interface _Tortue {
+	/**
+	 * Fait avancer la tortue de d pas
+	 * @param d la distance à parcourir
+	 * @require argumentValide : d>=0
+	 */
+	public void avancer(double d);
+	/**
+	 * Fait reculer la tortue de d pas
+	 * @param d la distance à parcourir
+	 * @require argumentValide : d>=0
+	 */
+	public void reculer(double d);
+	/**
+	 * Fait tourner la tortue à droite d'un angle a
+	 * @param a l'angle de rotation en degré
+	 */
+	public void droite(double a);
+	/**
+	 * Fait tourner la tortue à gauche d'un angle a
+	 * @param a l'angle de rotation en degré
+	 */
+	public void gauche(double a);
+	/** Lève la plume */
+	public void lever();
+	/** Baisse la plume */
+	public void baisser();
+	/**
+	 * Déplace la tortue du vecteur (dx,dy) sans changer son cap
+	 * @param dx le déplacement en abscisse
+	 * @param dy le déplacement en ordonnée
+	 */
+	public void allerA(double dx, double dy);
+}
@@ -0,0 +1,20 @@
+package jus.aoo.turtle;
+
+/**
+ * Un ensemble de segments déjà tracés, parcourable sans construire de Segment.
+ * @version 1.0
+ * @see _Traceur
+ */
+public interface _Trace {
+	/**
+	 * Restitue le nombre de segments mémorisés
+	 * @return le nombre de segments
+	 */
+	public int nbSegments();
+	/**
+	 * Transmet, dans l'ordre du tracé, chacun des segments mémorisés
+	 * @param t la destination des segments
+	 * @require argumentValide : t!=null
+	 */
+	public void parcourir(_Traceur t);
+}
@@ -0,0 +1,19 @@
+package jus.aoo.turtle;
+
+/**
+ * Destination des segments tracés par une tortue.
+ * Les extrémités sont transmises sous forme de coordonnées primitives afin
+ * qu'aucun objet géométrique ne soit construit pour chaque pas.
+ * @version 1.0
+ * @see MoteurTortue
+ */
+public interface _Traceur {
+	/**
+	 * Enregistre le segment [(x1,y1),(x2,y2)]
+	 * @param x1 l'abscisse de l'origine
+	 * @param y1 l'ordonnée de l'origine
+	 * @param x2 l'abscisse de l'extrémité
+	 * @param y2 l'ordonnée de l'extrémité
+	 */
+	public void trace(double x1, double y1, double x2, double y2);
+}